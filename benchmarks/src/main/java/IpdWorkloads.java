@@ -0,0 +1,147 @@
+import ipd.bench.Workloads;
+import jade.core.AID;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.lang.acl.ACLMessage;
+import jade.wrapper.ContainerController;
+
+/**
+ * Benchmark workloads over the tournament classes, see {@link Workloads}
+ */
+public class IpdWorkloads implements Workloads {
+
+    private static final String[] STRATEGIES = {"TFTStrategy", "SpitefulStrategy", "PavlovStrategy", "RandomStrategy"};
+    private static final String[] AGENTS = {"TFT_agent", "Spiteful_agent", "Pavlov_agent", "RandomAgent"};
+
+    private MainAgent.PlayerInformation player1, player2;
+    private GameResult game;
+    private Strategy strategy;
+    private ACLMessage results;
+    private final GameCodec codec = new GameCodec();
+    private int N, R, parallelism;
+
+    private ContainerController container;
+    private LoopbackHub hub;
+    private AID[] players;
+
+    @Override
+    public void resetPlayers() {
+        player1 = new MainAgent.PlayerInformation(null, 0);
+        player2 = new MainAgent.PlayerInformation(null, 1);
+        game = new GameResult();
+    }
+
+    @Override
+    public int recordRound(int move1, int move2) {
+        int outcome = GameResult.outcome(move1, move2);
+        game.recordRepeated(outcome, 1);
+        return outcome;
+    }
+
+    @Override
+    public int mergeGame(int R) {
+        GameResult result = new GameResult();
+        result.recordRepeated(GameResult.CC, R / 2);
+        result.recordRepeated(GameResult.DC, R - R / 2);
+        result.applyTo(player1, player2, PayoffMatrix.PRISONERS_DILEMMA);
+        MainAgent.closeGame(player1, player2);
+        return player1.gamesWon;
+    }
+
+    @Override
+    public void addGames(int games) {
+        for (int g = 0; g < games; g++) {
+            player1.addPayoff((g % 50) / 10f);
+        }
+    }
+
+    @Override
+    public double calcFinalPayoff() {
+        player1.calcFinalPayoff();
+        return player1.finalPayoff;
+    }
+
+    @Override
+    public void useStrategy(String className) {
+        strategy = TournamentEngine.strategyFactory(className).get();
+        strategy.newGame();
+    }
+
+    @Override
+    public int strategyRound(int opponentMove) {
+        int move = strategy.nextMove();
+        strategy.saveOpponentMove(move, opponentMove);
+        return move;
+    }
+
+    @Override
+    public void useResultsMessage(boolean binary) {
+        results = new ACLMessage(ACLMessage.INFORM);
+        if (binary) {
+            results.setByteSequenceContent(GameCodec.encodeResults(0, 1, Strategy.COOPERATE, Strategy.DEFECT, 0, 5));
+        } else {
+            results.setContent(GameCodec.resultsText(0, 1, Strategy.COOPERATE, Strategy.DEFECT, 0, 5));
+        }
+    }
+
+    @Override
+    public int decodeResults() {
+        codec.decode(results);
+        if (codec.id1 == 0) {
+            strategy.saveOpponentMove(codec.move1, codec.move2);
+        } else if (codec.id2 == 0) {
+            strategy.saveOpponentMove(codec.move2, codec.move1);
+        }
+        return codec.move2;
+    }
+
+    @Override
+    public void useTournament(int N, int R, int parallelism) {
+        this.N = N;
+        this.R = R;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public long playInProcess() {
+        TournamentEngine engine = new TournamentEngine(R);
+        engine.setParallelism(parallelism);
+        for (int i = 0; i < N; i++) {
+            engine.addPlayer(new MainAgent.PlayerInformation(null, i), TournamentEngine.strategyFactory(STRATEGIES[i % STRATEGIES.length]));
+        }
+        engine.play();
+        long moves = 0;
+        for (MainAgent.PlayerInformation player : engine.getPlayers()) {
+            moves += player.cooperations + player.defections;
+        }
+        return moves / 2;
+    }
+
+    @Override
+    public void startLoopback(int N) throws Exception {
+        Runtime runtime = Runtime.instance();
+        runtime.setCloseVM(false);
+        Profile profile = new ProfileImpl(null, Integer.getInteger("ipd.bench.port", 1199), null);
+        profile.setParameter(Profile.GUI, "false");
+        container = runtime.createMainContainer(profile);
+        players = new AID[N];
+        for (int i = 0; i < N; i++) {
+            // tracing off, the benchmark measures the messaging
+            container.createNewAgent("player" + i, AGENTS[i % AGENTS.length], new Object[] {"OFF"}).start();
+            players[i] = new AID("player" + i, AID.ISLOCALNAME);
+        }
+        hub = new LoopbackHub();
+        container.acceptNewAgent("hub", hub).start();
+    }
+
+    @Override
+    public long playLoopback(int R) throws Exception {
+        return hub.play(players, R);
+    }
+
+    @Override
+    public void stopLoopback() throws Exception {
+        container.kill();
+    }
+}
@@ -0,0 +1,57 @@
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hub of the loopback benchmark. Plays round-robin tournaments with the player
+ * agents through the same {@link MessageTournament} as MainAgent, without the
+ * GUI, so it can run in a headless JVM.
+ */
+public class LoopbackHub extends Agent {
+
+    private final BlockingQueue<FutureTask<Long>> tournaments = new LinkedBlockingQueue<>();
+
+    @Override
+    protected void setup() {
+        addBehaviour(new CyclicBehaviour(this) {
+            @Override
+            public void action() {
+                try {
+                    FutureTask<Long> tournament = tournaments.poll(100, TimeUnit.MILLISECONDS);
+                    if (tournament != null) tournament.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    /**
+     * Plays a tournament on the agent's thread and waits for it to end
+     * @return rounds played
+     */
+    public long play(AID[] players, int R) throws Exception {
+        FutureTask<Long> tournament = new FutureTask<>(() -> playTournament(players, R));
+        tournaments.put(tournament);
+        return tournament.get();
+    }
+
+    private long playTournament(AID[] players, int R) {
+        MessageTournament tournament = new MessageTournament(this, R);
+        for (int i = 0; i < players.length; i++) {
+            // every move through messages, batch play would skip the per-round path
+            tournament.addPlayer(new MainAgent.PlayerInformation(players[i], i), true, null);
+        }
+        tournament.play();
+        long moves = 0;
+        for (MainAgent.PlayerInformation player : tournament.getPlayers()) {
+            moves += player.cooperations + player.defections;
+        }
+        return moves / 2;
+    }
+}
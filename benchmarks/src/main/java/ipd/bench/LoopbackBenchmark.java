@@ -0,0 +1,53 @@
+package ipd.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full N-player round-robin through ACL messages between real player agents and
+ * a hub in one JADE container. The rounds counter gives rounds/sec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class LoopbackBenchmark {
+
+    @Param({"4", "8"})
+    public int N;
+
+    @Param({"10", "100"})
+    public int R;
+
+    private Workloads workloads;
+
+    @Setup
+    public void setup() throws Exception {
+        workloads = Workloads.create();
+        workloads.startLoopback(N);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        workloads.stopLoopback();
+    }
+
+    @Benchmark
+    public void jade(Rounds counter) throws Exception {
+        counter.rounds += workloads.playLoopback(R);
+    }
+}
@@ -0,0 +1,22 @@
+package ipd.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reports the rounds played as a secondary throughput result, in rounds per second
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Rounds {
+
+    public long rounds;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        rounds = 0;
+    }
+}
@@ -0,0 +1,57 @@
+package ipd.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring done by the main agent every round, when a game is merged and for the final payoff
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ScoringBenchmark {
+
+    @Param({"10", "1000"})
+    public int games;
+
+    private Workloads workloads;
+    private int round;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        workloads = Workloads.create();
+        workloads.resetPlayers();
+        workloads.addGames(games);
+    }
+
+    @Benchmark
+    public int recordRound() {
+        round++;
+        return workloads.recordRound(round & 1, (round >> 1) & 1);
+    }
+
+    @Benchmark
+    public int mergeGame() {
+        return workloads.mergeGame(100);
+    }
+
+    @Benchmark
+    public double calcFinalPayoff() {
+        return workloads.calcFinalPayoff();
+    }
+}
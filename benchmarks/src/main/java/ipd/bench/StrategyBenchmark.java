@@ -0,0 +1,54 @@
+package ipd.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work of a player agent every round: deciding its move and parsing the results
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StrategyBenchmark {
+
+    @Param({"RandomStrategy", "TFTStrategy", "SpitefulStrategy", "PavlovStrategy"})
+    public String strategy;
+
+    @Param({"true", "false"})
+    public boolean binary;
+
+    private Workloads workloads;
+    private int round;
+
+    @Setup
+    public void setup() {
+        workloads = Workloads.create();
+        workloads.useStrategy(strategy);
+        workloads.useResultsMessage(binary);
+    }
+
+    @Benchmark
+    public int nextMoveAndSave() {
+        round++;
+        return workloads.strategyRound((round >> 3) & 1);
+    }
+
+    @Benchmark
+    public int decodeResults() {
+        return workloads.decodeResults();
+    }
+}
@@ -0,0 +1,49 @@
+package ipd.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full N-player round-robin with the in-process engine. The rounds counter gives rounds/sec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TournamentBenchmark {
+
+    @Param({"4", "16", "64"})
+    public int N;
+
+    @Param({"10", "100", "1000"})
+    public int R;
+
+    @Param({"1"})
+    public int parallelism;
+
+    private Workloads workloads;
+
+    @Setup
+    public void setup() {
+        workloads = Workloads.create();
+        workloads.useTournament(N, R, parallelism);
+    }
+
+    @Benchmark
+    public void inProcess(Rounds counter) {
+        counter.rounds += workloads.playInProcess();
+    }
+}
@@ -0,0 +1,82 @@
+package ipd.bench;
+
+/**
+ * Entry points into the tournament code for the benchmarks. The tournament
+ * classes live in the unnamed package, which JMH benchmark classes cannot use,
+ * so they are reached through this interface implemented by IpdWorkloads.
+ * Every benchmark state creates its own instance.
+ */
+public interface Workloads {
+
+    static Workloads create() {
+        try {
+            return (Workloads) Class.forName("IpdWorkloads").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Starts over with two players that have played nothing
+     */
+    void resetPlayers();
+
+    /**
+     * Records one round into the current game's GameResult, as the hub does when both moves are in
+     * @return outcome code of the round
+     */
+    int recordRound(int move1, int move2);
+
+    /**
+     * Merges a game of R rounds into both players with GameResult.applyTo and MainAgent.closeGame
+     * @return games won by the first player
+     */
+    int mergeGame(int R);
+
+    /**
+     * Adds the average payoffs of some games to the first player
+     */
+    void addGames(int games);
+
+    double calcFinalPayoff();
+
+    void useStrategy(String className);
+
+    /**
+     * Plays one round of the strategy: nextMove and saveOpponentMove
+     * @return move of the strategy
+     */
+    int strategyRound(int opponentMove);
+
+    /**
+     * Prepares a Results message in the binary or the text encoding
+     */
+    void useResultsMessage(boolean binary);
+
+    /**
+     * Decodes the Results message and hands the moves to the strategy, as the agents do
+     * @return opponent's move
+     */
+    int decodeResults();
+
+    void useTournament(int N, int R, int parallelism);
+
+    /**
+     * Plays the whole round-robin with TournamentEngine
+     * @return rounds played
+     */
+    long playInProcess();
+
+    /**
+     * Starts a JADE main container with N player agents and a hub
+     */
+    void startLoopback(int N) throws Exception;
+
+    /**
+     * Plays the whole round-robin through ACL messages with the player agents
+     * @return rounds played
+     */
+    long playLoopback(int R) throws Exception;
+
+    void stopLoopback() throws Exception;
+}
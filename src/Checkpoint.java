@@ -0,0 +1,144 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * State of a tournament between two games, so it can resume after a restart
+ * without playing the finished games again: the tournament seed (every pairing
+ * derives its random stream from it), the parameters, the index of the next
+ * game in the schedule and the accumulated statistics of every player,
+ * the move timeouts included.
+ *
+ * The file is binary, about 80 bytes per player, and is written to a temporary
+ * file first, then renamed, so a crash while writing keeps the previous checkpoint.
+ */
+public class Checkpoint {
+
+    private static final int MAGIC = 0x49504443;
+    private static final int VERSION = 3;
+    // ints of a player before its payoffs: games played and won, cooperations,
+    // defections, move requests, timeouts and whether it was flagged slow
+    private static final int STATS = 7;
+
+    private final long seed;
+    private final int R;
+    private final double noise;
+    private final PayoffMatrix payoffs;
+    private final int nextGame;
+    private final String[] names;
+    private final int[] stats;
+    private final RunningStats[] avgPayoffs;
+
+    private Checkpoint(long seed, int R, double noise, PayoffMatrix payoffs, int nextGame, String[] names, int[] stats, RunningStats[] avgPayoffs) {
+        this.seed = seed;
+        this.R = R;
+        this.noise = noise;
+        this.payoffs = payoffs;
+        this.nextGame = nextGame;
+        this.names = names;
+        this.stats = stats;
+        this.avgPayoffs = avgPayoffs;
+    }
+
+    /**
+     * @param nextGame index of the first game not played yet, in schedule order
+     */
+    public static void write(File file, long seed, int R, double noise, PayoffMatrix payoffs, int nextGame,
+                             List<MainAgent.PlayerInformation> players) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeInt(R);
+            out.writeDouble(noise);
+            out.writeInt(payoffs.T);
+            out.writeInt(payoffs.R);
+            out.writeInt(payoffs.P);
+            out.writeInt(payoffs.S);
+            out.writeInt(nextGame);
+            out.writeInt(players.size());
+            for (MainAgent.PlayerInformation player : players) {
+                out.writeUTF(player.aid.getName());
+                out.writeInt(player.gamesPlayed);
+                out.writeInt(player.gamesWon);
+                out.writeInt(player.cooperations);
+                out.writeInt(player.defections);
+                out.writeInt(player.moveRequests);
+                out.writeInt(player.timeouts);
+                out.writeBoolean(player.flaggedSlow);
+                player.avgPayoff.writeTo(out);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Checkpoint read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a tournament checkpoint: " + file);
+            long seed = in.readLong();
+            int R = in.readInt();
+            double noise = in.readDouble();
+            int t = in.readInt(), r = in.readInt(), p = in.readInt(), s = in.readInt();
+            PayoffMatrix payoffs = new PayoffMatrix(t, r, p, s);
+            int nextGame = in.readInt();
+            int n = in.readInt();
+            String[] names = new String[n];
+            int[] stats = new int[STATS * n];
+            RunningStats[] avgPayoffs = new RunningStats[n];
+            for (int i = 0; i < n; i++) {
+                names[i] = in.readUTF();
+                for (int k = 0; k < STATS - 1; k++) stats[STATS * i + k] = in.readInt();
+                stats[STATS * i + STATS - 1] = in.readBoolean() ? 1 : 0;
+                avgPayoffs[i] = new RunningStats();
+                avgPayoffs[i].readFrom(in);
+            }
+            return new Checkpoint(seed, R, noise, payoffs, nextGame, names, stats, avgPayoffs);
+        }
+    }
+
+    /**
+     * @return true if the checkpoint was taken in a tournament between these players, in this order, with these parameters
+     */
+    public boolean matches(List<MainAgent.PlayerInformation> players, int R, double noise, PayoffMatrix payoffs) {
+        if (players.size() != names.length || R != this.R || noise != this.noise || !payoffs.equals(this.payoffs)) return false;
+        for (int i = 0; i < names.length; i++) {
+            if (!names[i].equals(players.get(i).aid.getName())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets the statistics of the players to those of the checkpoint
+     */
+    public void restore(List<MainAgent.PlayerInformation> players) {
+        for (int i = 0; i < names.length; i++) {
+            MainAgent.PlayerInformation player = players.get(i);
+            player.gamesPlayed = stats[STATS * i];
+            player.gamesWon = stats[STATS * i + 1];
+            player.cooperations = stats[STATS * i + 2];
+            player.defections = stats[STATS * i + 3];
+            player.moveRequests = stats[STATS * i + 4];
+            player.timeouts = stats[STATS * i + 5];
+            player.flaggedSlow = stats[STATS * i + 6] != 0;
+            player.avgPayoff = avgPayoffs[i];
+            player.resetPayoff();
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getNextGame() {
+        return nextGame;
+    }
+}
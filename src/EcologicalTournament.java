@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * Axelrod's ecological tournament: every strategy is a population whose share
+ * grows in proportion to its average payoff against the current mix of
+ * populations (discrete replicator dynamics).
+ *
+ * The payoff matrix between strategies is computed once, exactly for pairs of
+ * memory-one strategies and by playing a game otherwise, then each generation
+ * is a matrix-vector product over a primitive share vector.
+ */
+public class EcologicalTournament {
+
+    public interface GenerationListener {
+        /**
+         * @param shares population shares, owned by the tournament, copy them to keep them
+         */
+        void generation(int generation, double[] shares);
+    }
+
+    private final List<Supplier<Strategy>> strategies = new ArrayList<>();
+    private final int R;
+    private PayoffMatrix payoffs = PayoffMatrix.PRISONERS_DILEMMA;
+    private double noise;
+    private long seed = new SplittableRandom().nextLong();
+    // average payoff per round of strategy i against strategy j at [i * n + j]
+    private double[] matrix;
+
+    public EcologicalTournament(int R) {
+        this.R = R;
+    }
+
+    public void addStrategy(Supplier<Strategy> strategy) {
+        strategies.add(strategy);
+        matrix = null;
+    }
+
+    public void setPayoffs(PayoffMatrix payoffs) {
+        this.payoffs = payoffs;
+        matrix = null;
+    }
+
+    /**
+     * Probability that a move is flipped after the strategy picked it
+     */
+    public void setNoise(double noise) {
+        this.noise = noise;
+        matrix = null;
+    }
+
+    /**
+     * Seed of the games that have to be played
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        matrix = null;
+    }
+
+    /**
+     * Scores every two strategies, and every strategy against itself
+     *
+     * @return row-major matrix of average payoffs per round
+     */
+    public double[] getPayoffMatrix() {
+        if (matrix != null) return matrix;
+        int n = strategies.size();
+        double[] a = new double[n * n];
+        double[] averages = new double[2];
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                Strategy strategy1 = strategies.get(i).get(), strategy2 = strategies.get(j).get();
+                SplittableRandom random = new SplittableRandom(seeds.nextLong());
+                strategy1.setRandom(random.split());
+                strategy2.setRandom(random.split());
+                TournamentEngine.averagePayoffs(strategy1, strategy2, R, noise, random, payoffs, averages);
+                a[i * n + j] = averages[0];
+                a[j * n + i] = averages[1];
+            }
+        }
+        matrix = a;
+        return a;
+    }
+
+    /**
+     * Runs the replicator dynamics from equal shares
+     *
+     * @param reportEvery generations between two calls to the listener, which also sees the first and last one
+     * @return final shares
+     */
+    public double[] run(int generations, int reportEvery, GenerationListener listener) {
+        int n = strategies.size();
+        double[] a = getPayoffMatrix();
+        double[] shares = new double[n];
+        double[] fitness = new double[n];
+        Arrays.fill(shares, 1.0 / n);
+        if (listener != null) listener.generation(0, shares);
+        for (int g = 1; g <= generations; g++) {
+            if (step(a, n, shares, fitness) <= 0) break;
+            if (listener != null && (g % reportEvery == 0 || g == generations)) listener.generation(g, shares);
+        }
+        return shares;
+    }
+
+    /**
+     * Advances the shares one generation: x_i = x_i * f_i / mean(f) with f = A x
+     *
+     * @return mean fitness of the population, the shares are unchanged if it is not positive
+     */
+    static double step(double[] a, int n, double[] shares, double[] fitness) {
+        double mean = 0;
+        for (int i = 0; i < n; i++) {
+            double f = 0;
+            int row = i * n;
+            for (int j = 0; j < n; j++) {
+                f += a[row + j] * shares[j];
+            }
+            fitness[i] = f;
+            mean += shares[i] * f;
+        }
+        if (mean <= 0) return mean;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            shares[i] *= fitness[i] / mean;
+            sum += shares[i];
+        }
+        // keeps rounding errors from accumulating over thousands of generations
+        for (int i = 0; i < n; i++) {
+            shares[i] /= sum;
+        }
+        return mean;
+    }
+}
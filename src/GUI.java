@@ -4,13 +4,15 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.IOException;
+import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.text.DecimalFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 public final class GUI extends JFrame implements ActionListener {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
 	
 	private JButton leftPanelNewButton;
     private JButton leftPanelStopButton;
@@ -22,12 +24,15 @@ public final class GUI extends JFrame implements ActionListener {
     private JLabel leftPanelNumPlayersPlayingLabel;
     private JLabel leftPanelNumGamesPlayedLabel;
     private JLabel leftPanelRoundsMaximum;
+    private JLabel leftPanelPayoffs;
     
     private MainAgent mainAgent;
     private JPanel rightPanel;
-    private JTextArea rightPanelLoggingTextArea;
+    private JList<String> rightPanelLoggingList;
+    private LogSink logSink;
     private LoggingOutputStream loggingOutputStream;
     private JTable payoffTable;
+    private SharesPanel sharesPanel;
 
     public GUI() {
         initUI();
@@ -36,15 +41,18 @@ public final class GUI extends JFrame implements ActionListener {
     public GUI(MainAgent agent) {
         mainAgent = agent;
         initUI();
-        loggingOutputStream = new LoggingOutputStream(rightPanelLoggingTextArea);
+        loggingOutputStream = new LoggingOutputStream(logSink);
     }
 
     public void log(String s) {
-        Runnable appendLine = () -> {
-            rightPanelLoggingTextArea.append('[' + LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")) + "] - " + s);
-            rightPanelLoggingTextArea.setCaretPosition(rightPanelLoggingTextArea.getDocument().getLength());
-        };
-        SwingUtilities.invokeLater(appendLine);
+        logSink.offer('[' + LocalDateTime.now().format(TIME_FORMAT) + "] - " + s);
+    }
+
+    /**
+     * Stops appending log lines, called when the main agent is taken down
+     */
+    public void stopLogging() {
+        logSink.stop();
     }
 
     public OutputStream getLoggingOutputStream() {
@@ -129,6 +137,8 @@ public final class GUI extends JFrame implements ActionListener {
         leftPanelNumPlayersPlayingLabel.setToolTipText("Number of current players in the tournament");
         leftPanelRoundsMaximum = new JLabel("Maximum rounds R : ");
         leftPanelRoundsMaximum.setToolTipText("Number of maximum rounds that can be played in one game");
+        leftPanelPayoffs = new JLabel("Payoffs T,R,P,S : ");
+        leftPanelPayoffs.setToolTipText("Temptation, reward, punishment and sucker's payoffs");
 
 
         gc.fill = GridBagConstraints.HORIZONTAL;
@@ -153,6 +163,8 @@ public final class GUI extends JFrame implements ActionListener {
         leftPanel.add(leftPanelNumPlayersPlayingLabel, gc);
         gc.gridy = 8;
         leftPanel.add(leftPanelRoundsMaximum, gc);
+        gc.gridy = 9;
+        leftPanel.add(leftPanelPayoffs, gc);
 
         return leftPanel;
     }
@@ -172,6 +184,9 @@ public final class GUI extends JFrame implements ActionListener {
         model.addColumn("Cooperations");
         model.addColumn("Defections");
         model.addColumn("Games won");
+        model.addColumn("Std dev");
+        model.addColumn("95% CI");
+        model.addColumn("Timeouts");
         
         payoffTable.setFillsViewportHeight(true);
         payoffTable.setEnabled(false);
@@ -203,9 +218,12 @@ public final class GUI extends JFrame implements ActionListener {
         c.weighty = 1d;
         c.weightx = 1d;
 
-        rightPanelLoggingTextArea = new JTextArea("");
-        rightPanelLoggingTextArea.setEditable(false);
-        JScrollPane jScrollPane = new JScrollPane(rightPanelLoggingTextArea);
+        rightPanelLoggingList = new JList<>();
+        // a prototype row fixes the row size, so only the visible rows are ever measured
+        rightPanelLoggingList.setPrototypeCellValue(String.format("%160s", ""));
+        // lines from all the agents are batched and appended at most 10 times per second
+        logSink = new LogSink(rightPanelLoggingList, 8192, 100000, 100);
+        JScrollPane jScrollPane = new JScrollPane(rightPanelLoggingList);
         rightPanel.add(jScrollPane, c);
         return rightPanel;
     }
@@ -257,10 +275,60 @@ public final class GUI extends JFrame implements ActionListener {
         roundNumberRunMenu.setToolTipText("Change the number of rounds");
         roundNumberRunMenu.addActionListener(this);
 
+        JMenuItem ecologicalRunMenu = new JMenuItem("Ecological");
+        ecologicalRunMenu.setToolTipText("Evolve the population shares of the players' strategies with replicator dynamics");
+        ecologicalRunMenu.addActionListener(this);
+
+        JMenuItem memoryRunMenu = new JMenuItem("Memory sweep");
+        memoryRunMenu.setToolTipText("Score the memory-n lookup-table strategies against the players and log the best ones");
+        memoryRunMenu.addActionListener(this);
+
+        JMenuItem noiseRunMenu = new JMenuItem("Noise");
+        noiseRunMenu.setToolTipText("Probability that a move is flipped after the player chose it");
+        noiseRunMenu.addActionListener(this);
+
+        JMenuItem populationRunMenu = new JMenuItem("Population");
+        populationRunMenu.setToolTipText("Evolve a large population of the players' strategies, well-mixed or on a lattice");
+        populationRunMenu.addActionListener(this);
+
+        JMenuItem generationsRunMenu = new JMenuItem("Number Of generations");
+        generationsRunMenu.setToolTipText("Change the number of generations of the ecological tournament");
+        generationsRunMenu.addActionListener(this);
+
+        JMenuItem payoffsRunMenu = new JMenuItem("Payoff matrix");
+        payoffsRunMenu.setToolTipText("Change the payoffs of the game");
+        payoffsRunMenu.addActionListener(this);
+
+        JMenuItem timeoutRunMenu = new JMenuItem("Move timeout");
+        timeoutRunMenu.setToolTipText("Time a player has to answer each round before the default move is applied");
+        timeoutRunMenu.addActionListener(this);
+
+        JMenuItem parallelismRunMenu = new JMenuItem("Parallelism");
+        parallelismRunMenu.setToolTipText("Number of games played at once, on threads in the in-process engine and as separate conversations through messages");
+        parallelismRunMenu.addActionListener(this);
+
+        JCheckBoxMenuItem incrementalRunMenu = new JCheckBoxMenuItem("Incremental", false);
+        incrementalRunMenu.setToolTipText("Keep the results of earlier tournaments and only play the pairings of new players");
+        incrementalRunMenu.addActionListener(actionEvent -> mainAgent.setIncremental(incrementalRunMenu.getState()));
+
+        JCheckBoxMenuItem inProcessRunMenu = new JCheckBoxMenuItem("In-process engine", false);
+        inProcessRunMenu.setToolTipText("Play the tournament by calling the strategies directly instead of messaging the agents");
+        inProcessRunMenu.addActionListener(actionEvent -> mainAgent.setInProcess(inProcessRunMenu.getState()));
+
         menuRun.add(newRunMenu);
+        menuRun.add(ecologicalRunMenu);
+        menuRun.add(populationRunMenu);
+        menuRun.add(memoryRunMenu);
         menuRun.add(stopRunMenu);
         menuRun.add(continueRunMenu);
         menuRun.add(roundNumberRunMenu);
+        menuRun.add(generationsRunMenu);
+        menuRun.add(noiseRunMenu);
+        menuRun.add(payoffsRunMenu);
+        menuRun.add(timeoutRunMenu);
+        menuRun.add(inProcessRunMenu);
+        menuRun.add(incrementalRunMenu);
+        menuRun.add(parallelismRunMenu);
         menuBar.add(menuRun);
 
         JMenu menuWindow = new JMenu("Window");
@@ -269,6 +337,12 @@ public final class GUI extends JFrame implements ActionListener {
         toggleVerboseWindowMenu.addActionListener(actionEvent -> rightPanel.setVisible(toggleVerboseWindowMenu.getState()));
 
         menuWindow.add(toggleVerboseWindowMenu);
+
+        JMenuItem statsWindowMenu = new JMenuItem("Statistics");
+        statsWindowMenu.setToolTipText("Throughput and latency percentiles of the tournament");
+        statsWindowMenu.addActionListener(actionEvent -> showStats());
+        statsWindowMenu.setEnabled(mainAgent != null);
+        menuWindow.add(statsWindowMenu);
         menuBar.add(menuWindow);
 
         JMenu menuHelp = new JMenu("Help");
@@ -319,6 +393,38 @@ public final class GUI extends JFrame implements ActionListener {
             	String results = JOptionPane.showInputDialog(new Frame("Configure rounds"), "How many rounds?");
             	setRoundsMaximum(results);
             }
+            else if (item.equals("Ecological")) {
+            	mainAgent.newEcologicalGame();
+            }
+            else if (item.equals("Noise")) {
+            	String results = JOptionPane.showInputDialog(new Frame("Configure noise"), "Probability that a move is flipped (0 to 1)?");
+            	if (results != null) mainAgent.setNoise(Double.parseDouble(results.trim()));
+            }
+            else if (item.equals("Memory sweep")) {
+            	mainAgent.newMemorySweep();
+            }
+            else if (item.equals("Population")) {
+            	mainAgent.newPopulationGame();
+            }
+            else if (item.equals("Number Of generations")) {
+            	String results = JOptionPane.showInputDialog(new Frame("Configure generations"), "How many generations?");
+            	if (results != null) mainAgent.setGenerations(Integer.valueOf(results.trim()));
+            }
+            else if (item.equals("Payoff matrix")) {
+            	String results = JOptionPane.showInputDialog(new Frame("Configure payoffs"),
+            			"Payoffs as T,R,P,S or one of prisoners-dilemma, stag-hunt, snowdrift");
+            	if (results != null) setPayoffs(results);
+            }
+            else if (item.equals("Move timeout")) {
+            	String results = JOptionPane.showInputDialog(new Frame("Configure move timeout"),
+            			"Milliseconds a player has to answer each round (0 waits forever)?");
+            	if (results != null) mainAgent.setMoveTimeout(Integer.parseInt(results.trim()));
+            }
+            else if (item.equals("Parallelism")) {
+            	String results = JOptionPane.showInputDialog(new Frame("Configure parallelism"), "How many threads?",
+            			Runtime.getRuntime().availableProcessors());
+            	if (results != null) mainAgent.setParallelism(Integer.valueOf(results.trim()));
+            }
             else if (item.equals("About")) {
             	String about = "This application was developed by Sven Golua as a part of 2020./21. PSI course in the University of Vigo";
             	JOptionPane.showMessageDialog(new JFrame(), about, "About",
@@ -364,6 +470,8 @@ public final class GUI extends JFrame implements ActionListener {
     	int cooperations = player.cooperations;
     	int defections = player.defections;
     	int gamesWon = player.gamesWon;
+    	double stdDev = player.avgPayoff.getStdDev();
+    	double confidence = player.avgPayoff.getConfidence95();
     	
     	DecimalFormat format = new DecimalFormat("#.###");
 		for (int i = 0; i < rows; i++) {
@@ -373,6 +481,9 @@ public final class GUI extends JFrame implements ActionListener {
 				model.setValueAt(cooperations, i, 3);
 				model.setValueAt(defections, i, 4);
 				model.setValueAt(gamesWon, i, 5);
+				model.setValueAt(format.format(stdDev), i, 6);
+				model.setValueAt("+/- " + format.format(confidence), i, 7);
+				model.setValueAt(player.timeouts + (player.isSlow() ? " (slow)" : ""), i, 8);
 			}
 		}
     }
@@ -398,6 +509,40 @@ public final class GUI extends JFrame implements ActionListener {
     	mainAgent.setRounds(Integer.valueOf(R.trim()));
     }
     
+    public void setPayoffs(String payoffs) {
+    	try {
+    		PayoffMatrix matrix = PayoffMatrix.parse(payoffs);
+    		leftPanelPayoffs.setText("Payoffs T,R,P,S : " + matrix);
+    		mainAgent.setPayoffs(matrix);
+    	} catch (IllegalArgumentException e) {
+    		logLine("Invalid payoffs " + payoffs + " : " + e.getMessage());
+    	}
+    }
+    
+    private void showStats() {
+    	JFrame frame = new JFrame("Statistics");
+    	frame.setContentPane(new StatsPanel(mainAgent.getStats()));
+    	frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+    	frame.pack();
+    	frame.setVisible(true);
+    }
+    
+    // ecological tournament
+    public void showShares(String[] strategies) {
+    	SwingUtilities.invokeLater(() -> {
+    		sharesPanel = new SharesPanel(strategies);
+    		JFrame frame = new JFrame("Ecological tournament");
+    		frame.setContentPane(sharesPanel);
+    		frame.pack();
+    		frame.setVisible(true);
+    	});
+    }
+    
+    public void addShares(int generation, double[] shares) {
+    	double[] copy = shares.clone();
+    	SwingUtilities.invokeLater(() -> sharesPanel.addShares(generation, copy));
+    }
+    
     // show tournament winner
     public void showWinner(String playerName) {
     	JOptionPane.showMessageDialog(new JFrame(), "Winner : " + playerName, "Tournament winner",
@@ -427,17 +572,41 @@ public final class GUI extends JFrame implements ActionListener {
     	}
     }
     
+    /**
+     * Collects what every thread prints and hands it to the log sink line by line
+     */
     public class LoggingOutputStream extends OutputStream {
-        private JTextArea textArea;
+        private final LogSink sink;
+        private final ThreadLocal<ByteArrayOutputStream> lines = ThreadLocal.withInitial(ByteArrayOutputStream::new);
 
-        public LoggingOutputStream(JTextArea jTextArea) {
-            textArea = jTextArea;
+        public LoggingOutputStream(LogSink logSink) {
+            sink = logSink;
         }
 
         @Override
-        public void write(int i) throws IOException {
-            textArea.append(String.valueOf((char) i));
-            textArea.setCaretPosition(textArea.getDocument().getLength());
+        public void write(int i) {
+            ByteArrayOutputStream line = lines.get();
+            line.write(i);
+            if (i == '\n') endLine(line);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ByteArrayOutputStream line = lines.get();
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    line.write(b, start, i + 1 - start);
+                    endLine(line);
+                    start = i + 1;
+                }
+            }
+            line.write(b, start, off + len - start);
+        }
+
+        private void endLine(ByteArrayOutputStream line) {
+            sink.offer(line.toString());
+            line.reset();
         }
     }
 }
@@ -0,0 +1,48 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning one game between two players. Games of the
+ * in-process engine are played on other threads and committed when merged,
+ * so their duration is zero.
+ */
+@Name("ipd.Game")
+@Label("Game")
+@Category("IPD")
+@Description("One game between two players")
+public class GameEvent extends Event {
+
+    @Label("Game")
+    @Description("Index of the game in schedule order")
+    int game;
+
+    @Label("Player 1")
+    int player1;
+
+    @Label("Player 2")
+    int player2;
+
+    @Label("Name 1")
+    String name1;
+
+    @Label("Name 2")
+    String name2;
+
+    @Label("Rounds")
+    int rounds;
+
+    @Label("Payoff 1")
+    @Description("Average payoff per round of player 1")
+    double payoff1;
+
+    @Label("Payoff 2")
+    @Description("Average payoff per round of player 2")
+    double payoff2;
+
+    @Label("Mode")
+    @Description("messages, batch, inProcess or stored")
+    String mode;
+}
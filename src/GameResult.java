@@ -0,0 +1,112 @@
+/**
+ * Outcome counts of one game between two players. Counts are indexed by the
+ * 2-bit outcome code (move1 << 1 | move2) with moves as defined in {@link Strategy}.
+ */
+public class GameResult {
+
+    public static final int CC = 0;
+    public static final int CD = 1;
+    public static final int DC = 2;
+    public static final int DD = 3;
+
+    final int[] counts = new int[4];
+    int rounds;
+    // move requests sent to each player and those each player missed, through messages only
+    int moveRequests, timeouts1, timeouts2;
+
+    public static int outcome(int move1, int move2) {
+        return (move1 << 1) | move2;
+    }
+
+    public static int move1(int outcome) {
+        return outcome >> 1;
+    }
+
+    public static int move2(int outcome) {
+        return outcome & 1;
+    }
+
+    /**
+     * @return the same outcome seen from the other player
+     */
+    public static int swap(int outcome) {
+        return ((outcome & 1) << 1) | (outcome >> 1);
+    }
+
+    public void record(int move1, int move2) {
+        counts[outcome(move1, move2)]++;
+        rounds++;
+    }
+
+    /**
+     * Records the same outcome for several rounds at once
+     */
+    public void recordRepeated(int outcome, int times) {
+        counts[outcome] += times;
+        rounds += times;
+    }
+
+    /**
+     * @return the same game seen from the second player
+     */
+    public GameResult swapped() {
+        GameResult result = new GameResult();
+        for (int outcome = 0; outcome < 4; outcome++) {
+            result.counts[swap(outcome)] = counts[outcome];
+        }
+        result.rounds = rounds;
+        result.moveRequests = moveRequests;
+        result.timeouts1 = timeouts2;
+        result.timeouts2 = timeouts1;
+        return result;
+    }
+
+    public int getCount(int outcome) {
+        return counts[outcome];
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public double averagePayoff1(PayoffMatrix payoffs) {
+        long total = 0;
+        for (int outcome = 0; outcome < 4; outcome++) {
+            total += (long) counts[outcome] * payoffs.payoff1(outcome);
+        }
+        return rounds > 0 ? (double) total / rounds : 0;
+    }
+
+    public double averagePayoff2(PayoffMatrix payoffs) {
+        long total = 0;
+        for (int outcome = 0; outcome < 4; outcome++) {
+            total += (long) counts[outcome] * payoffs.payoff2(outcome);
+        }
+        return rounds > 0 ? (double) total / rounds : 0;
+    }
+
+    /**
+     * Adds the rounds of this game to the players' current game, with the same
+     * effect as scoring them one at a time
+     */
+    public void applyTo(MainAgent.PlayerInformation player1, MainAgent.PlayerInformation player2, PayoffMatrix payoffs) {
+        int cc = counts[CC], cd = counts[CD], dc = counts[DC], dd = counts[DD];
+        player1.cooperations += cc + cd;
+        player1.defections += dc + dd;
+        player1.round += rounds;
+
+        player2.cooperations += cc + dc;
+        player2.defections += cd + dd;
+        player2.round += rounds;
+
+        player1.moveRequests += moveRequests;
+        player1.timeouts += timeouts1;
+        player2.moveRequests += moveRequests;
+        player2.timeouts += timeouts2;
+
+        for (int outcome = 0; outcome < 4; outcome++) {
+            player1.payoff += counts[outcome] * payoffs.payoff1(outcome);
+            player2.payoff += counts[outcome] * payoffs.payoff2(outcome);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+import javax.swing.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Collects log lines from any thread in a bounded lock-free ring buffer and
+ * appends them to a list in batches on the event dispatch thread.
+ *
+ * Producers never block: when the buffer is more than three quarters full only
+ * one line in {@link #SAMPLE_RATE} is kept, and when it is full lines are dropped.
+ * The number of lost lines is reported in the list. The list model is itself a
+ * ring of maxLines lines, the oldest ones are overwritten as new ones arrive,
+ * and the list only renders the rows that are visible, so a flush costs the
+ * same with a full history as with an empty one.
+ */
+public class LogSink {
+
+    public static final int SAMPLE_RATE = 16;
+
+    private final JList<String> list;
+    private final Lines lines;
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final AtomicInteger sampled = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Timer timer;
+
+    /**
+     * @param capacity lines buffered between two flushes, rounded up to a power of two
+     * @param maxLines lines kept in the list
+     * @param flushMillis time between two flushes
+     */
+    public LogSink(JList<String> list, int capacity, int maxLines, int flushMillis) {
+        this.list = list;
+        lines = new Lines(maxLines);
+        list.setModel(lines);
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+        timer = new Timer(flushMillis, actionEvent -> flush());
+        timer.start();
+    }
+
+    /**
+     * Queues a line, it should already end with a line break
+     *
+     * @return false if the line was dropped or not sampled
+     */
+    public boolean offer(String line) {
+        while (true) {
+            long t = tail.get();
+            long used = t - head;
+            if (used > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (used > (mask + 1) * 3 / 4 && sampled.incrementAndGet() % SAMPLE_RATE != 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int) (t & mask), line);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Stops the flush timer, the lines queued so far are still flushed once
+     */
+    public void stop() {
+        timer.stop();
+        SwingUtilities.invokeLater(this::flush);
+    }
+
+    /**
+     * Appends the queued lines to the list, runs on the event dispatch thread
+     */
+    private void flush() {
+        List<String> batch = null;
+        long h = head;
+        long t = tail.get();
+        while (h < t) {
+            int slot = (int) (h & mask);
+            String line = slots.get(slot);
+            if (line == null) break; // claimed but not yet published, next flush takes it
+            slots.lazySet(slot, null);
+            if (batch == null) batch = new ArrayList<>();
+            split(line, batch);
+            h++;
+        }
+        head = h;
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            if (batch == null) batch = new ArrayList<>();
+            batch.add("[... " + lost + " log lines dropped]");
+        }
+        if (batch == null || batch.isEmpty()) return;
+
+        lines.addAll(batch);
+        list.ensureIndexIsVisible(lines.getSize() - 1);
+    }
+
+    /**
+     * Adds the rows of a queued entry, which may span several lines
+     */
+    private static void split(String entry, List<String> rows) {
+        int start = 0;
+        int end;
+        while ((end = entry.indexOf('\n', start)) >= 0) {
+            rows.add(entry.substring(start, end));
+            start = end + 1;
+        }
+        if (start < entry.length()) rows.add(entry.substring(start));
+    }
+
+    /**
+     * List model keeping the last rows in a fixed array, row 0 is the oldest
+     */
+    static class Lines extends AbstractListModel<String> {
+        private final String[] rows;
+        private int first;
+        private int size;
+
+        Lines(int maxLines) {
+            rows = new String[maxLines];
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return rows[(first + index) % rows.length];
+        }
+
+        void addAll(List<String> batch) {
+            int from = Math.max(0, batch.size() - rows.length);
+            int added = batch.size() - from;
+            int removed = Math.max(0, size + added - rows.length);
+            if (removed > 0) {
+                first = (first + removed) % rows.length;
+                size -= removed;
+                fireIntervalRemoved(this, 0, removed - 1);
+            }
+            for (int i = from; i < batch.size(); i++) {
+                rows[(first + size) % rows.length] = batch.get(i);
+                size++;
+            }
+            fireIntervalAdded(this, size - added, size - 1);
+        }
+    }
+}
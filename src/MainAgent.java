@@ -1,23 +1,42 @@
 import jade.core.AID;
 import jade.core.Agent;
+import jade.core.behaviours.OneShotBehaviour;
 import jade.core.behaviours.SimpleBehaviour;
 import jade.domain.DFService;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.Property;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 import jade.domain.FIPAException;
 import jade.lang.acl.ACLMessage;
 
+import javax.management.JMException;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.*;
 import java.text.DecimalFormat;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 public class MainAgent extends Agent {
 
     private GUI gui;
     private AID[] playerAgents;
+    private String[] playerStrategies;
+    private boolean[] playerBatch;
+    private boolean[] playerBinary;
     private GameParametersStruct parameters = new GameParametersStruct();
+    private PairingCache pairingCache;
+    private final TournamentResults tournamentResults = new TournamentResults();
+    private final TournamentStats stats = new TournamentStats();
     
     private boolean stop;
 
@@ -26,10 +45,114 @@ public class MainAgent extends Agent {
         gui = new GUI(this);
         System.setOut(new PrintStream(gui.getLoggingOutputStream()));
 
+        loadConfig();
+        try {
+            stats.register();
+        } catch (JMException e) {
+            gui.logLine("Could not register " + TournamentStats.NAME + " : " + e.getMessage());
+        }
         updatePlayers();
         gui.logLine("Agent " + getAID().getName() + " is ready.");
     }
 
+    @Override
+    protected void takeDown() {
+        stats.unregister();
+        if (pairingCache != null) {
+            try {
+                pairingCache.close();
+            } catch (IOException e) {
+                gui.logLine("Could not close pairing cache : " + e.getMessage());
+            }
+        }
+        gui.stopLogging();
+    }
+
+    /** @return throughput and latencies of the tournaments, also published over JMX */
+    public TournamentStatsMXBean getStats() {
+        return stats;
+    }
+
+    /**
+     * @return cache shared by the in-process tournaments, null when cacheSize is 0
+     */
+    private PairingCache getPairingCache() {
+        if (pairingCache == null && parameters.cacheSize > 0) {
+            if (parameters.cacheFile != null) {
+                try {
+                    pairingCache = new PairingCache(parameters.cacheSize, new File(parameters.cacheFile), parameters.cacheFileSize);
+                } catch (IOException e) {
+                    gui.logLine("Could not open pairing cache " + parameters.cacheFile + " : " + e.getMessage());
+                }
+            }
+            if (pairingCache == null) pairingCache = new PairingCache(parameters.cacheSize);
+        }
+        return pairingCache;
+    }
+
+    /**
+     * Reads the tournament parameters from the file given as the first argument of
+     * this agent or the ipd.config property, ipd.properties if neither is set.
+     * Known keys are rounds, payoffs (T,R,P,S or a game name), inProcess, incremental, parallelism, generations,
+     * population (moran or lattice), populationSize, snapshots (file),
+     * noise (probability that a move is flipped), seed (fixed tournament seed) and
+     * memory (n of the memory sweep), cacheSize (pairings cached in memory) and
+     * cache (file of the on-disk pairing cache), cacheFileSize (entries of each of its two generations), checkpoint (file), checkpointInterval (seconds),
+     * moveLog (file), export (columnar results file) and exportCsv (prefix of the CSV result files),
+     * roundSample (one flight recorder round event every roundSample rounds, 0 for none),
+     * moveTimeout (milliseconds a player has to answer each round, 0 waits forever) and
+     * timeoutMove (C, D or forfeit, played for a player that missed the deadline).
+     */
+    private void loadConfig() {
+        Object[] args = getArguments();
+        String path = args != null && args.length > 0 ? String.valueOf(args[0]) : System.getProperty("ipd.config", "ipd.properties");
+        File file = new File(path);
+        if (!file.isFile()) return;
+        Properties config = new Properties();
+        try (Reader reader = new FileReader(file)) {
+            config.load(reader);
+            if (config.containsKey("rounds")) parameters.R = Integer.parseInt(config.getProperty("rounds").trim());
+            if (config.containsKey("payoffs")) parameters.payoffs = PayoffMatrix.parse(config.getProperty("payoffs"));
+            if (config.containsKey("inProcess")) parameters.inProcess = Boolean.parseBoolean(config.getProperty("inProcess").trim());
+            if (config.containsKey("incremental")) parameters.incremental = Boolean.parseBoolean(config.getProperty("incremental").trim());
+            if (config.containsKey("parallelism")) parameters.parallelism = Integer.parseInt(config.getProperty("parallelism").trim());
+            if (config.containsKey("generations")) parameters.generations = Integer.parseInt(config.getProperty("generations").trim());
+            if (config.containsKey("population")) parameters.populationModel = PopulationSimulation.Model.valueOf(config.getProperty("population").trim().toUpperCase());
+            if (config.containsKey("populationSize")) parameters.populationSize = Integer.parseInt(config.getProperty("populationSize").trim());
+            if (config.containsKey("snapshots")) parameters.snapshots = config.getProperty("snapshots").trim();
+            if (config.containsKey("noise")) parameters.noise = Double.parseDouble(config.getProperty("noise").trim());
+            if (config.containsKey("seed")) parameters.seed = Long.parseLong(config.getProperty("seed").trim());
+            if (config.containsKey("memory")) parameters.memory = Integer.parseInt(config.getProperty("memory").trim());
+            if (config.containsKey("cacheSize")) parameters.cacheSize = Integer.parseInt(config.getProperty("cacheSize").trim());
+            if (config.containsKey("cache")) parameters.cacheFile = config.getProperty("cache").trim();
+            if (config.containsKey("cacheFileSize")) parameters.cacheFileSize = Integer.parseInt(config.getProperty("cacheFileSize").trim());
+            if (config.containsKey("export")) parameters.export = config.getProperty("export").trim();
+            if (config.containsKey("exportCsv")) parameters.exportCsv = config.getProperty("exportCsv").trim();
+            if (config.containsKey("moveLog")) parameters.moveLog = config.getProperty("moveLog").trim();
+            if (config.containsKey("checkpoint")) parameters.checkpoint = config.getProperty("checkpoint").trim();
+            if (config.containsKey("checkpointInterval")) parameters.checkpointInterval = Integer.parseInt(config.getProperty("checkpointInterval").trim());
+            if (config.containsKey("roundSample")) parameters.roundSample = Integer.parseInt(config.getProperty("roundSample").trim());
+            if (config.containsKey("moveTimeout")) parameters.moveTimeout = Integer.parseInt(config.getProperty("moveTimeout").trim());
+            if (config.containsKey("timeoutMove")) parameters.timeoutMove = parseTimeoutMove(config.getProperty("timeoutMove"));
+            gui.logLine("Configuration read from " + path);
+        } catch (IOException | IllegalArgumentException e) {
+            gui.logLine("Could not read configuration " + path + " : " + e.getMessage());
+        }
+    }
+
+    private static int parseTimeoutMove(String move) {
+        switch (move.trim().toUpperCase()) {
+            case "C":
+                return Strategy.COOPERATE;
+            case "D":
+                return Strategy.DEFECT;
+            case "FORFEIT":
+                return MessageTournament.FORFEIT;
+            default:
+                throw new IllegalArgumentException("timeoutMove must be C, D or forfeit, not " + move);
+        }
+    }
+
     public void updatePlayers() {
         gui.logLine("Updating player list");
         DFAgentDescription template = new DFAgentDescription();
@@ -42,8 +165,14 @@ public class MainAgent extends Agent {
                 gui.logLine("Found " + result.length + " players");
             }
             playerAgents = new AID[result.length];
+            playerStrategies = new String[result.length];
+            playerBatch = new boolean[result.length];
+            playerBinary = new boolean[result.length];
             for (int i = 0; i < result.length; ++i) {
                 playerAgents[i] = result[i].getName();
+                playerStrategies[i] = findProperty(result[i], "strategy");
+                playerBatch[i] = "true".equals(findProperty(result[i], "batch"));
+                playerBinary[i] = GameCodec.ENCODING.equals(findProperty(result[i], "encoding"));
             }
         } catch (FIPAException fe) {
             gui.logLine(fe.getMessage());
@@ -61,10 +190,29 @@ public class MainAgent extends Agent {
         parameters.N = playerNames.length;
         gui.setPlayersPlaying(String.valueOf(parameters.N));
         gui.setRoundsMaximum(String.valueOf(parameters.R));
+        gui.setPayoffs(parameters.payoffs.toString());
         gui.setGamesPlayed("0");
         return;
     }
     
+    /**
+     * @return value of a property the player registered with its service, null if it did not register it
+     */
+    private String findProperty(DFAgentDescription description, String name) {
+        Iterator<?> services = description.getAllServices();
+        while (services.hasNext()) {
+            ServiceDescription sd = (ServiceDescription) services.next();
+            Iterator<?> properties = sd.getAllProperties();
+            while (properties.hasNext()) {
+                Property property = (Property) properties.next();
+                if (property.getName().equals(name)) {
+                    return String.valueOf(property.getValue());
+                }
+            }
+        }
+        return null;
+    }
+    
     public void deletePlayer(String name) {
     	for (int i = 0; i < playerAgents.length; i++) {
     		String playerName = playerAgents[i].getLocalName();
@@ -91,6 +239,13 @@ public class MainAgent extends Agent {
         return 0;
     }
     
+    public int newEcologicalGame() {
+    	gui.enableGameButtons(false);
+    	gui.enableResetButtons(false);
+    	addBehaviour(new EcologyManager());
+    	return 0;
+    }
+    
     public void setRounds(int R) {
     	parameters.R = R;
     }
@@ -99,6 +254,49 @@ public class MainAgent extends Agent {
     	parameters.N = N;
     }
     
+    /**
+     * Keeps the results of earlier tournaments and only plays the pairings of new players
+     */
+    public void setIncremental(boolean incremental) {
+    	parameters.incremental = incremental;
+    }
+    
+    public void setInProcess(boolean inProcess) {
+    	parameters.inProcess = inProcess;
+    }
+    
+    public int newPopulationGame() {
+    	gui.enableGameButtons(false);
+    	gui.enableResetButtons(false);
+    	addBehaviour(new PopulationManager());
+    	return 0;
+    }
+    
+    public int newMemorySweep() {
+    	addBehaviour(new MemorySweepManager());
+    	return 0;
+    }
+    
+    public void setNoise(double noise) {
+    	parameters.noise = noise;
+    }
+    
+    public void setGenerations(int generations) {
+    	parameters.generations = generations;
+    }
+    
+    public void setPayoffs(PayoffMatrix payoffs) {
+    	parameters.payoffs = payoffs;
+    }
+    
+    public void setParallelism(int parallelism) {
+    	parameters.parallelism = parallelism;
+    }
+    
+    public void setMoveTimeout(int millis) {
+    	parameters.moveTimeout = millis;
+    }
+    
     public void stopGame() {
     	stop = true;
     }
@@ -114,97 +312,240 @@ public class MainAgent extends Agent {
      */
     private class GameManager extends SimpleBehaviour {
 
+        private long lastCheckpoint = System.nanoTime();
+        private MoveLog moveLog;
+        private ResultExporter exporter;
+        private final LatencyHistogram guiTime = Metrics.histogram("gui");
+        private final LongAdder rounds = Metrics.counter(Metrics.ROUNDS);
+        private TournamentEvent tournamentEvent;
+
         @Override
         public void action() {
+            tournamentEvent = new TournamentEvent();
+            tournamentEvent.begin();
             //Assign the IDs
             ArrayList<PlayerInformation> players = new ArrayList<>();
             int lastId = 0;
             for (AID a : playerAgents) {
                 players.add(new PlayerInformation(a, lastId++));
             }
+            long seed = parameters.seed != null ? parameters.seed : new SplittableRandom().nextLong();
+            int firstGame = 0;
+            Checkpoint checkpoint = readCheckpoint(players);
+            if (checkpoint != null) {
+                checkpoint.restore(players);
+                for (PlayerInformation player : players) {
+                    gui.updatePlayerTable(player);
+                }
+                seed = checkpoint.getSeed();
+                firstGame = checkpoint.getNextGame();
+                gui.logLine("Resuming from checkpoint " + parameters.checkpoint + " at game " + (firstGame + 1));
+            }
+            gui.logLine("Tournament seed : " + seed + (parameters.noise > 0 ? ", noise : " + parameters.noise : ""));
+            tournamentEvent.seed = seed;
+            tournamentEvent.players = players.size();
+            tournamentEvent.rounds = parameters.R;
+            tournamentEvent.noise = parameters.noise;
+            tournamentEvent.firstGame = firstGame;
+            tournamentEvent.games = players.size() * (players.size() - 1) / 2 - firstGame;
+            if (parameters.moveLog != null) {
+                try {
+                    moveLog = MoveLog.open(new File(parameters.moveLog), players, checkpoint != null);
+                } catch (IOException e) {
+                    gui.logLine("Could not open move log " + parameters.moveLog + " : " + e.getMessage());
+                }
+            }
+            if (parameters.export != null || parameters.exportCsv != null) {
+                try {
+                    exporter = new ResultExporter(parameters.export != null ? new File(parameters.export) : null, parameters.exportCsv, parameters.payoffs);
+                } catch (IOException e) {
+                    gui.logLine("Could not open export : " + e.getMessage());
+                }
+            }
+            TournamentResults results = null;
+            if (parameters.incremental) {
+                results = tournamentResults;
+                gui.logLine("Incremental tournament : " + results.retain(players, parameters.R, parameters.noise) + " pairings kept");
+            }
             
-
-            //Initialize (inform ID)
-            for (PlayerInformation player : players) {
-                ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-                msg.setContent("Id#" + player.id + "#" + parameters.N + "," + parameters.R);
-                msg.addReceiver(player.aid);
-                send(msg);
+            if (parameters.inProcess) {
+                TournamentEngine engine = createEngine(players, seed);
+                if (engine != null) {
+                    engine.setPairingStore(results);
+                    engine.setFirstGame(firstGame);
+                    engine.setMoveLog(moveLog);
+                    tournamentEvent.inProcess = true;
+                    playInProcess(engine, seed);
+                    tournamentEnd(players);
+                    return;
+                }
+                gui.logLine("Not every player registered a strategy, playing through messages");
             }
+
             //Organize the matches
-            int gamesPlayed=0;
-            for (int i = 0; i < players.size(); i++) {
-                for (int j = i + 1; j < players.size(); j++) {
-                	int numRounds = (int) Math.round(((float) Math.random()/10) +  0.9*parameters.R);
-                    for (int r = 0; r < numRounds; r++) {
-                    	if (!stop) {
-                    		playGame(players.get(i), players.get(j));
-                    	} else {
-                    		doWait();
-                    	}
-                    }
-                    endGame(players.get(i), players.get(j));
-                    gamesPlayed++;
-                    gui.setGamesPlayed(String.valueOf(gamesPlayed));
-                }
+            MessageTournament tournament = new MessageTournament(MainAgent.this, parameters.R);
+            tournament.setParallelism(parameters.parallelism);
+            tournament.setPayoffs(parameters.payoffs);
+            tournament.setNoise(parameters.noise);
+            tournament.setSeed(seed);
+            tournament.setMoveTimeout(parameters.moveTimeout);
+            tournament.setTimeoutMove(parameters.timeoutMove);
+            tournament.setRoundSample(parameters.roundSample);
+            tournament.setPairingStore(results);
+            tournament.setFirstGame(firstGame);
+            tournament.setMoveLog(moveLog);
+            tournament.setLog(gui::logLine);
+            for (PlayerInformation player : players) {
+                //Players that support batch play can have whole games played by local replicas
+                tournament.addPlayer(player, playerBinary[player.id],
+                        playerBatch[player.id] ? TournamentEngine.strategyFactory(playerStrategies[player.id]) : null);
             }
+            playThroughMessages(tournament, seed);
             tournamentEnd(players);
         }
 
-        private void playGame(PlayerInformation player1, PlayerInformation player2) {
-            //Assuming player1.id < player2.id
-            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-            msg.addReceiver(player1.aid);
-            msg.addReceiver(player2.aid);
-            msg.setContent("NewGame#" + player1.id + "," + player2.id);
-            send(msg);
-            
+        private void export(PlayerInformation player1, PlayerInformation player2, GameResult result) {
+            if (exporter == null) return;
+            try {
+                exporter.pairing(player1, player2, result);
+            } catch (IOException e) {
+                gui.logLine("Could not export results : " + e.getMessage());
+                closeExporter();
+            }
+        }
 
-            msg = new ACLMessage(ACLMessage.REQUEST);
-            msg.setContent("Action");
-            msg.addReceiver(player1.aid);
-            send(msg);
+        private void closeExporter() {
+            try {
+                exporter.close();
+            } catch (IOException e) {
+                gui.logLine("Could not close export : " + e.getMessage());
+            }
+            exporter = null;
+        }
 
-            ACLMessage move1 = blockingReceive();
-            gui.logLine("Main Received " + move1.getContent() + " from " + move1.getSender().getName());
-            String action1 = move1.getContent().split("#")[1];
+        /**
+         * @return checkpoint of an unfinished tournament between these players, null if there is none
+         */
+        private Checkpoint readCheckpoint(ArrayList<PlayerInformation> players) {
+            if (parameters.checkpoint == null) return null;
+            File file = new File(parameters.checkpoint);
+            if (!file.isFile()) return null;
+            try {
+                Checkpoint checkpoint = Checkpoint.read(file);
+                if (checkpoint.matches(players, parameters.R, parameters.noise, parameters.payoffs)) return checkpoint;
+                gui.logLine("Checkpoint " + file + " belongs to another tournament, starting a new one");
+            } catch (IOException e) {
+                gui.logLine("Could not read checkpoint " + file + " : " + e.getMessage());
+            }
+            return null;
+        }
 
-            msg = new ACLMessage(ACLMessage.REQUEST);
-            msg.setContent("Action");
-            msg.addReceiver(player2.aid);
-            send(msg);
+        /**
+         * Writes a checkpoint between two games, at most once per checkpointInterval unless now is set
+         *
+         * @param nextGame index of the next game in schedule order
+         */
+        private void writeCheckpoint(List<PlayerInformation> players, long seed, int nextGame, boolean now) {
+            if (parameters.checkpoint == null) return;
+            long start = System.nanoTime();
+            if (!now && start - lastCheckpoint < parameters.checkpointInterval * 1000000000L) return;
+            try {
+                Checkpoint.write(new File(parameters.checkpoint), seed, parameters.R, parameters.noise, parameters.payoffs, nextGame, players);
+                gui.logLine("Checkpoint at game " + nextGame + " written in " + (System.nanoTime() - start) / 1000 + " us");
+            } catch (IOException e) {
+                gui.logLine("Could not write checkpoint " + parameters.checkpoint + " : " + e.getMessage());
+            }
+            lastCheckpoint = System.nanoTime();
+        }
 
-            ACLMessage move2 = blockingReceive();
-            gui.logLine("Main Received " + move1.getContent() + " from " + move1.getSender().getName());
-            String action2 = move2.getContent().split("#")[1];
-            
-            String payoff = calcPayoffs(action1, action2, player1, player2);
+        /**
+         * Replicates every player's strategy locally
+         * @return engine or null if some player did not register a known strategy
+         */
+        private TournamentEngine createEngine(ArrayList<PlayerInformation> players, long seed) {
+            TournamentEngine engine = new TournamentEngine(parameters.R);
+            engine.setParallelism(parameters.parallelism);
+            engine.setPayoffs(parameters.payoffs);
+            engine.setNoise(parameters.noise);
+            engine.setSeed(seed);
+            engine.setCache(getPairingCache());
+            for (PlayerInformation player : players) {
+                Supplier<Strategy> strategy = TournamentEngine.strategyFactory(playerStrategies[player.id]);
+                if (strategy == null) return null;
+                engine.addPlayer(player, strategy);
+            }
+            return engine;
+        }
 
-            msg = new ACLMessage(ACLMessage.INFORM);
-            msg.addReceiver(player1.aid);
-            msg.addReceiver(player2.aid);
-            msg.setContent("Results#" + player1.id + "," + player2.id + "#" + payoff);
-            send(msg);
+        private void playInProcess(TournamentEngine engine, long seed) {
+            engine.setGameListener((player1, player2, result, gamesPlayed) -> {
+                rounds.add(result.getRounds());
+                MessageTournament.commitGame(new GameEvent(), gamesPlayed - 1, player1, player2, result, parameters.payoffs, "inProcess");
+                export(player1, player2, result);
+                if (stop) {
+                    writeCheckpoint(engine.getPlayers(), seed, gamesPlayed, true);
+                }
+                while (stop) {
+                    doWait();
+                }
+                gui.updatePlayerTable(player1);
+                gui.updatePlayerTable(player2);
+                gui.setGamesPlayed(String.valueOf(gamesPlayed));
+                writeCheckpoint(engine.getPlayers(), seed, gamesPlayed, false);
+            });
+            engine.play();
+            if (pairingCache != null) {
+                gui.logLine("Pairing cache : " + pairingCache.getHits() + " hits, " + pairingCache.getMisses() + " misses");
+            }
         }
-        
-        private void endGame(PlayerInformation player1, PlayerInformation player2) {
-        	String endAvgPayoffs = calcEndAvgPayoffs(player1, player2);
-        	ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-			msg.addReceiver(player1.aid);
-			msg.addReceiver(player2.aid);
-			msg.setContent("GameOver#" + player1.id + "," + player2.id + "#" + endAvgPayoffs);
-			send(msg);
-			
-			gui.updatePlayerTable(player1);
-			gui.updatePlayerTable(player2);
+
+        private void playThroughMessages(MessageTournament tournament, long seed) {
+            tournament.setPause(gamesPlayed -> {
+                if (!stop) return false;
+                writeCheckpoint(tournament.getPlayers(), seed, gamesPlayed, true);
+                while (stop) {
+                    doWait();
+                }
+                return true;
+            });
+            tournament.setGameListener((player1, player2, result, gamesPlayed) -> {
+                export(player1, player2, result);
+                long guiStart = System.nanoTime();
+                gui.updatePlayerTable(player1);
+                gui.updatePlayerTable(player2);
+                gui.setGamesPlayed(String.valueOf(gamesPlayed));
+                guiTime.recordSince(guiStart);
+                writeCheckpoint(tournament.getPlayers(), seed, gamesPlayed, false);
+            });
+            tournament.play();
         }
-        
+
         private void tournamentEnd(ArrayList<PlayerInformation> players) {
         	gui.logLine(" TOURNAMENT OVER\n ");
+        	tournamentEvent.commit();
+        	if (parameters.checkpoint != null) {
+        		new File(parameters.checkpoint).delete();
+        	}
+        	if (moveLog != null) {
+        		try {
+        			moveLog.close();
+        		} catch (IOException e) {
+        			gui.logLine("Could not close move log " + parameters.moveLog + " : " + e.getMessage());
+        		}
+        		moveLog = null;
+        	}
         	for (int i=0; i < players.size(); i++) {
         		players.get(i).calcFinalPayoff();
         		gui.logLine(players.get(i).aid.getName() + " GAMES WON : " + String.valueOf(players.get(i).gamesWon));
         	}
+        	if (exporter != null) {
+        		try {
+        			exporter.players(players);
+        		} catch (IOException e) {
+        			gui.logLine("Could not export results : " + e.getMessage());
+        		}
+        		closeExporter();
+        	}
         	Collections.sort(players, new Comparator<PlayerInformation>() {
         		  public int compare(PlayerInformation c1, PlayerInformation c2) {
         			  int comp = Double.compare(c1.finalPayoff, c2.finalPayoff);
@@ -225,33 +566,152 @@ public class MainAgent extends Agent {
         }
     }
     
-    private String calcPayoffs(String action1, String action2, PlayerInformation player1, PlayerInformation player2) {
-    	String actions = action1 + action2;
-    	String ret="";
-		if (actions.equals("CC")){
-			player1.playerEqual("C");
-			player2.playerEqual("C");
-			ret = "C,C#3,3";
-		} else if(actions.equals("DD")) {
-			player1.playerEqual("D");
-			player2.playerEqual("D");
-			ret = "D,D#1,1";
-		} else if(actions.equals("CD")) {
-			player2.playerWon();
-			player1.playerLost();
-			ret = "C,D#0,5";
-		} else if (actions.equals("DC")) {
-			player1.playerWon();
-			player2.playerLost();
-			ret = "D,C#5,0";
-		}
-		player1.round++;
-		player2.round++;
-    	return ret;
+    /**
+     * Scores the memory-n strategies against the players' strategies and logs the best ones
+     */
+    private class MemorySweepManager extends OneShotBehaviour {
+
+        private static final int BEST = 5;
+        private static final int SAMPLES = 100000;
+
+        @Override
+        public void action() {
+            MemorySweep sweep = new MemorySweep(parameters.memory, parameters.R);
+            sweep.setPayoffs(parameters.payoffs);
+            sweep.setNoise(parameters.noise);
+            long seed = parameters.seed != null ? parameters.seed : new SplittableRandom().nextLong();
+            SplittableRandom seeds = new SplittableRandom(seed);
+            sweep.setSeed(seeds.nextLong());
+            for (int i = 0; i < playerAgents.length; i++) {
+                Supplier<Strategy> strategy = TournamentEngine.strategyFactory(playerStrategies[i]);
+                if (strategy == null) {
+                    gui.logLine("Player " + playerAgents[i].getLocalName() + " did not register a known strategy, cannot replicate it");
+                    return;
+                }
+                sweep.addOpponent(strategy);
+            }
+            MemoryStrategy[] best = new MemoryStrategy[BEST];
+            double[] bestPayoffs = new double[BEST];
+            MemorySweep.Listener listener = (table, payoff) -> {
+                int k = BEST;
+                while (k > 0 && (best[k - 1] == null || payoff > bestPayoffs[k - 1])) k--;
+                if (k == BEST) return;
+                System.arraycopy(best, k, best, k + 1, BEST - k - 1);
+                System.arraycopy(bestPayoffs, k, bestPayoffs, k + 1, BEST - k - 1);
+                best[k] = new MemoryStrategy(parameters.memory);
+                best[k].setTable(table);
+                bestPayoffs[k] = payoff;
+            };
+            gui.logLine("Memory sweep seed : " + seed);
+            if (MemoryStrategy.entries(parameters.memory) <= 16) {
+                gui.logLine("Scoring every memory-" + parameters.memory + " strategy");
+                sweep.scoreAll(listener);
+            } else {
+                gui.logLine("Scoring " + SAMPLES + " random memory-" + parameters.memory + " strategies");
+                sweep.sample(SAMPLES, seeds.nextLong(), listener);
+            }
+            DecimalFormat format = new DecimalFormat("#.###");
+            for (int k = 0; k < BEST && best[k] != null; k++) {
+                gui.logLine((k + 1) + ". " + best[k] + " : " + format.format(bestPayoffs[k]));
+            }
+        }
+    }
+
+    /**
+     * Runs an ecological tournament over the players' strategies, plotting the
+     * population shares while they are computed
+     */
+    private class EcologyManager extends OneShotBehaviour {
+
+        @Override
+        public void action() {
+            String[] names = new String[playerAgents.length];
+            EcologicalTournament tournament = createEcologicalTournament(names);
+            if (tournament == null) return;
+            gui.logLine("Ecological tournament : " + parameters.generations + " generations");
+            gui.showShares(names);
+            // about 500 points per plot
+            int reportEvery = Math.max(1, parameters.generations / 500);
+            double[] shares = tournament.run(parameters.generations, reportEvery, (generation, s) -> gui.addShares(generation, s));
+            DecimalFormat format = new DecimalFormat("#.####");
+            for (int i = 0; i < names.length; i++) {
+                gui.logLine(names[i] + " FINAL SHARE : " + format.format(shares[i]));
+            }
+        }
+
+        @Override
+        public int onEnd() {
+            gui.enableGameButtons(true);
+            gui.enableResetButtons(true);
+            return 0;
+        }
+    }
+    
+    /**
+     * Simulates a large population of the players' strategies, well-mixed or on a
+     * lattice, streaming the strategy counts to the snapshot file
+     */
+    private class PopulationManager extends OneShotBehaviour {
+
+        @Override
+        public void action() {
+            String[] names = new String[playerAgents.length];
+            EcologicalTournament tournament = createEcologicalTournament(names);
+            if (tournament == null) return;
+            PopulationSimulation simulation = new PopulationSimulation(parameters.populationModel, tournament.getPayoffMatrix(),
+                    names.length, parameters.populationSize, parameters.seed != null ? parameters.seed : new SplittableRandom().nextLong());
+            simulation.setParallelism(parameters.parallelism);
+            gui.logLine(parameters.populationModel + " population of " + simulation.getSize() + " : " + parameters.generations
+                    + " generations, snapshots in " + parameters.snapshots);
+            gui.showShares(names);
+            int snapshotEvery = Math.max(1, parameters.generations / 500);
+            try (Writer snapshots = new BufferedWriter(new FileWriter(parameters.snapshots))) {
+                simulation.run(parameters.generations, snapshotEvery, names, snapshots, (generation, s) -> gui.addShares(generation, s));
+            } catch (IOException e) {
+                gui.logLine("Could not write snapshots " + parameters.snapshots + " : " + e.getMessage());
+                return;
+            }
+            int[] counts = simulation.getCounts();
+            for (int i = 0; i < names.length; i++) {
+                gui.logLine(names[i] + " FINAL COUNT : " + counts[i]);
+            }
+        }
+
+        @Override
+        public int onEnd() {
+            gui.enableGameButtons(true);
+            gui.enableResetButtons(true);
+            return 0;
+        }
+    }
+
+    /**
+     * Replicates the players' strategies in an ecological tournament
+     *
+     * @param names receives the local names of the players
+     * @return null if a player did not register a known strategy
+     */
+    private EcologicalTournament createEcologicalTournament(String[] names) {
+        EcologicalTournament tournament = new EcologicalTournament(parameters.R);
+        tournament.setPayoffs(parameters.payoffs);
+        tournament.setNoise(parameters.noise);
+        if (parameters.seed != null) tournament.setSeed(parameters.seed);
+        for (int i = 0; i < playerAgents.length; i++) {
+            Supplier<Strategy> strategy = TournamentEngine.strategyFactory(playerStrategies[i]);
+            if (strategy == null) {
+                gui.logLine("Player " + playerAgents[i].getLocalName() + " did not register a known strategy, cannot replicate it");
+                return null;
+            }
+            tournament.addStrategy(strategy);
+            names[i] = playerAgents[i].getLocalName();
+        }
+        return tournament;
     }
     
-    private String calcEndAvgPayoffs(PlayerInformation player1, PlayerInformation player2) {
-    	DecimalFormat format = new DecimalFormat("#.###");
+    /**
+     * Adds the average payoffs of the finished game to both players and resets their current game
+     */
+    static void closeGame(PlayerInformation player1, PlayerInformation player2) {
     	float payoff1 = (float) player1.payoff / player1.round;
     	float payoff2 = (float) player2.payoff / player2.round;
     	
@@ -266,12 +726,8 @@ public class MainAgent extends Agent {
     		player2.gamesWon++;
     	}
     	
-    	String result = format.format(payoff1) + "," + format.format(payoff2);
-    	
     	player1.resetPayoff();
     	player2.resetPayoff();
-    	
-    	return result;
     }
     
     private boolean checkForWinner(ArrayList<PlayerInformation> players) {
@@ -285,11 +741,12 @@ public class MainAgent extends Agent {
     	return false;
     }
 
-    public class PlayerInformation {
+    public static class PlayerInformation {
+    	static final int SLOW_TIMEOUTS = 3;
     	/* class has information about :
     	 * - player's current payoff and round
     	 * - player's games played
-    	 * - player's average payoff in each game
+    	 * - running statistics of player's average payoff in each game
     	 * - players cumulative number of cooperations and defections
     	*/ 
         AID aid;
@@ -299,9 +756,13 @@ public class MainAgent extends Agent {
         int gamesPlayed, gamesWon;
         int defections, cooperations;
         
-        ArrayList<Float> avgPayoff;
+        RunningStats avgPayoff;
         double finalPayoff;
         
+        // moves asked through messages and moves that missed the deadline
+        int moveRequests, timeouts;
+        boolean flaggedSlow;
+        
         public PlayerInformation(AID a, int i) {
             aid = a;
             id = i;
@@ -311,7 +772,7 @@ public class MainAgent extends Agent {
             cooperations=0;
             defections=0;
             round=0;
-            avgPayoff = new ArrayList<Float>();
+            avgPayoff = new RunningStats();
             finalPayoff=0;
             
         }
@@ -321,40 +782,24 @@ public class MainAgent extends Agent {
             return aid.equals(o);
         }
         
+        /**
+         * @return true once at least SLOW_TIMEOUTS moves, and one in ten of the moves asked, missed the deadline
+         */
+        public boolean isSlow() {
+        	return timeouts >= SLOW_TIMEOUTS && timeouts * 10 >= moveRequests;
+        }
+        
         public void resetPayoff() {
         	payoff=0;
         	round=0;
         }
         
-        public void playerWon() {
-        	defections++;
-        	payoff+=5;
-        }
-        
-        public void playerLost() {
-        	cooperations++;
-        }
-        
-        public void playerEqual(String move) {
-        	if (move.equals("C")) {
-        		payoff+=3;
-        		cooperations++;
-        	} else {
-        		payoff+=1;
-        		defections++;
-        	}
-        }
-        
         public void addPayoff(float payoff) {
         	avgPayoff.add(payoff);
         }
         
         public void calcFinalPayoff() {
-        	OptionalDouble average = avgPayoff
-                    .stream()
-                    .mapToDouble(a -> a)
-                    .average();
-        	finalPayoff = average.isPresent() ? average.getAsDouble() : 0;
+        	finalPayoff = avgPayoff.getMean();
         }
     }
 
@@ -362,10 +807,53 @@ public class MainAgent extends Agent {
 
         int N;
         int R;
+        boolean inProcess;
+        boolean incremental;
+        int parallelism;
+        PayoffMatrix payoffs;
+        int generations;
+        PopulationSimulation.Model populationModel;
+        int populationSize;
+        String snapshots;
+        double noise;
+        // null draws a new seed for every tournament
+        Long seed;
+        int memory;
+        int cacheSize;
+        // null keeps the pairing cache in memory only
+        String cacheFile;
+        // entries of a generation of the cache file, which keeps the last two
+        int cacheFileSize;
+        // null disables checkpoints
+        String checkpoint;
+        int checkpointInterval;
+        // null disables the move log
+        String moveLog;
+        // null disables the exports
+        String export;
+        String exportCsv;
+        // one sampled round event every roundSample rounds, 0 disables them
+        int roundSample;
+        // milliseconds a player has to answer each round, 0 waits forever
+        int moveTimeout;
+        // move played for a late player, COOPERATE, DEFECT or FORFEIT
+        int timeoutMove;
 
         public GameParametersStruct() {
             N = 2;
             R = 5;
+            parallelism = 1;
+            payoffs = PayoffMatrix.PRISONERS_DILEMMA;
+            generations = 1000;
+            memory = 1;
+            cacheSize = 100000;
+            cacheFileSize = 250000;
+            checkpointInterval = 30;
+            moveTimeout = 10000;
+            timeoutMove = Strategy.DEFECT;
+            populationModel = PopulationSimulation.Model.MORAN;
+            populationSize = 100000;
+            snapshots = "population.csv";
         }
     }
 }
@@ -0,0 +1,79 @@
+/**
+ * Exact expected outcomes of a game between two memory-one strategies. The
+ * outcome of the last round (CC, CD, DC or DD, first player's move first) is a
+ * 4-state Markov chain, so the expected number of rounds ending in each outcome
+ * follows from its distribution round by round, without drawing any move.
+ *
+ * Cooperation probabilities are those reported by {@link Strategy#memoryOne},
+ * execution noise flips the intended move with probability noise.
+ */
+public final class MemoryOneChain {
+
+    // the distribution is considered stationary once no entry moves by more than this
+    private static final double CONVERGED = 1e-15;
+
+    private MemoryOneChain() {
+    }
+
+    /**
+     * @return probability to cooperate once an intended cooperation with probability p went through the noise
+     */
+    static double noisy(double p, double noise) {
+        return p * (1 - noise) + (1 - p) * noise;
+    }
+
+    /**
+     * Fills the transition matrix, row-major, from the outcome of a round to the outcome of the next one
+     */
+    static void transitions(double[] p, double[] q, double noise, double[] t) {
+        for (int s = 0; s < 4; s++) {
+            double a = noisy(p[s], noise);
+            double b = noisy(q[GameResult.swap(s)], noise);
+            t[s * 4 + GameResult.CC] = a * b;
+            t[s * 4 + GameResult.CD] = a * (1 - b);
+            t[s * 4 + GameResult.DC] = (1 - a) * b;
+            t[s * 4 + GameResult.DD] = (1 - a) * (1 - b);
+        }
+    }
+
+    /**
+     * Expected number of rounds of a finite game ending in every outcome. Once
+     * the distribution stops changing the remaining rounds are added at once.
+     *
+     * @param counts receives the expected rounds ending in CC, CD, DC and DD
+     */
+    public static void expectedCounts(double[] p, double[] q, double noise, int rounds, double[] counts) {
+        double[] t = new double[16];
+        transitions(p, q, noise, t);
+        double c1 = noisy(p[4], noise), c2 = noisy(q[4], noise);
+        double v0 = c1 * c2, v1 = c1 * (1 - c2), v2 = (1 - c1) * c2, v3 = (1 - c1) * (1 - c2);
+        double n0 = 0, n1 = 0, n2 = 0, n3 = 0;
+        for (int r = 0; r < rounds; r++) {
+            n0 += v0;
+            n1 += v1;
+            n2 += v2;
+            n3 += v3;
+            double w0 = v0 * t[0] + v1 * t[4] + v2 * t[8] + v3 * t[12];
+            double w1 = v0 * t[1] + v1 * t[5] + v2 * t[9] + v3 * t[13];
+            double w2 = v0 * t[2] + v1 * t[6] + v2 * t[10] + v3 * t[14];
+            double w3 = v0 * t[3] + v1 * t[7] + v2 * t[11] + v3 * t[15];
+            if (Math.abs(w0 - v0) < CONVERGED && Math.abs(w1 - v1) < CONVERGED
+                    && Math.abs(w2 - v2) < CONVERGED && Math.abs(w3 - v3) < CONVERGED) {
+                int remaining = rounds - r - 1;
+                n0 += remaining * w0;
+                n1 += remaining * w1;
+                n2 += remaining * w2;
+                n3 += remaining * w3;
+                break;
+            }
+            v0 = w0;
+            v1 = w1;
+            v2 = w2;
+            v3 = w3;
+        }
+        counts[GameResult.CC] = n0;
+        counts[GameResult.CD] = n1;
+        counts[GameResult.DC] = n2;
+        counts[GameResult.DD] = n3;
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * Scores memory-n strategies against a fixed roster of opponents: every
+ * strategy of the family, or a random sample of them when the family is too
+ * large. One MemoryStrategy instance and one instance of every opponent are
+ * reused for all the games, only the table changes between two strategies.
+ */
+public class MemorySweep {
+
+    public interface Listener {
+        /**
+         * @param table table of the strategy, owned by the sweep, copy it to keep it
+         * @param payoff average payoff per round against the roster
+         */
+        void scored(long[] table, double payoff);
+    }
+
+    private final int n;
+    private final int R;
+    private final MemoryStrategy strategy;
+    private final List<Strategy> opponents = new ArrayList<>();
+    private PayoffMatrix payoffs = PayoffMatrix.PRISONERS_DILEMMA;
+    private double noise;
+    private long seed = new SplittableRandom().nextLong();
+    private final double[] averages = new double[2];
+
+    public MemorySweep(int n, int R) {
+        this.n = n;
+        this.R = R;
+        strategy = new MemoryStrategy(n);
+    }
+
+    public void addOpponent(Supplier<Strategy> opponent) {
+        opponents.add(opponent.get());
+    }
+
+    public void setPayoffs(PayoffMatrix payoffs) {
+        this.payoffs = payoffs;
+    }
+
+    /**
+     * Probability that a move is flipped after the strategy picked it
+     */
+    public void setNoise(double noise) {
+        this.noise = noise;
+    }
+
+    /**
+     * Seed of the games against the opponents. Every strategy plays each opponent
+     * with the same pairing seed, so a sweep is reproduced exactly from its seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param firstMoves bit r is the move of round r, for the first n rounds
+     */
+    public void setFirstMoves(long firstMoves) {
+        strategy.setFirstMoves(firstMoves);
+    }
+
+    /**
+     * Against memory-one opponents a memory-one strategy is scored exactly,
+     * without playing the games
+     *
+     * @return average payoff per round of the strategy with the given table against the roster
+     */
+    public double score(long[] table) {
+        strategy.setTable(table);
+        if (opponents.isEmpty()) return 0;
+        double total = 0;
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (Strategy opponent : opponents) {
+            SplittableRandom random = new SplittableRandom(seeds.nextLong());
+            strategy.setRandom(random.split());
+            opponent.setRandom(random.split());
+            TournamentEngine.averagePayoffs(strategy, opponent, R, noise, random, payoffs, averages);
+            total += averages[0];
+        }
+        return total / opponents.size();
+    }
+
+    /**
+     * Scores all 2^(4^n) strategies, only possible for memory one and two
+     */
+    public void scoreAll(Listener listener) {
+        int entries = MemoryStrategy.entries(n);
+        if (entries > 16) throw new IllegalStateException("Memory-" + n + " has 2^" + entries + " strategies, sample them instead");
+        long[] table = new long[1];
+        for (long t = 0; t < 1L << entries; t++) {
+            table[0] = t;
+            listener.scored(table, score(table));
+        }
+    }
+
+    /**
+     * Scores count strategies drawn uniformly from the family
+     */
+    public void sample(int count, long seed, Listener listener) {
+        int entries = MemoryStrategy.entries(n);
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] table = new long[Math.max(1, entries >>> 6)];
+        for (int s = 0; s < count; s++) {
+            for (int w = 0; w < table.length; w++) {
+                table[w] = random.nextLong();
+            }
+            if (entries < 64) table[0] &= (1L << entries) - 1;
+            listener.scored(table, score(table));
+        }
+    }
+}
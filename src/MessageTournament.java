@@ -0,0 +1,609 @@
+import jade.core.AID;
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Plays a round-robin tournament through ACL messages between the player agents
+ * and a hub agent, on the hub's thread. It knows nothing of the GUI, so the main
+ * agent and the loopback benchmark play the same protocol.
+ *
+ * Up to parallelism games are played at once. A player is in at most one game at a
+ * time, as the agents keep the state of a single game. Every game has its own
+ * conversation and only takes the replies that match its template; replies without
+ * a conversation id or in-reply-to, from players that do not echo them, go to the
+ * game of their sender. Finished games are merged into the players' statistics in
+ * schedule order, so the results do not depend on how the games interleave.
+ */
+public class MessageTournament {
+
+    /**
+     * Called between two messages, may block while the tournament is paused
+     */
+    public interface Pause {
+        /**
+         * @param gamesPlayed games merged so far
+         * @return true if it waited, the rounds in flight then get a new deadline
+         */
+        boolean await(int gamesPlayed);
+    }
+
+    /** Move for a late player that scores it as exploited */
+    public static final int FORFEIT = -1;
+
+    // games ahead of the first unfinished one that may be started
+    private static final int SCHEDULE_WINDOW = 1024;
+    // numbers the conversations of the games, unique for the life of the JVM
+    private static final AtomicLong conversations = new AtomicLong();
+
+    private final Agent hub;
+    private final int R;
+    private final List<MainAgent.PlayerInformation> players = new ArrayList<>();
+    private final List<Boolean> binary = new ArrayList<>();
+    private final List<Supplier<Strategy>> batch = new ArrayList<>();
+    private int parallelism = 1;
+    private PayoffMatrix payoffs = PayoffMatrix.PRISONERS_DILEMMA;
+    private double noise;
+    private long seed = new SplittableRandom().nextLong();
+    private int moveTimeout;
+    private int timeoutMove = Strategy.DEFECT;
+    private int roundSample;
+    private TournamentEngine.PairingStore store;
+    private int firstGame;
+    private MoveLog moveLog;
+    private TournamentEngine.GameListener listener;
+    private Pause pause;
+    private Consumer<String> log = line -> { };
+
+    private final GameCodec codec = new GameCodec();
+    private final LatencyHistogram roundTime = Metrics.histogram("round");
+    private final LatencyHistogram gameTime = Metrics.histogram("game");
+    private final LatencyHistogram endGameTime = Metrics.histogram("endGame");
+    private final LatencyHistogram sendTime = Metrics.histogram("send");
+    private final LatencyHistogram receiveTime = Metrics.histogram("receive");
+    private final LongAdder rounds = Metrics.counter(Metrics.ROUNDS);
+    private final LongAdder messages = Metrics.counter(Metrics.MESSAGES);
+    private final LongAdder timeouts = Metrics.counter("timeouts");
+    // replies of any game, routed to the game of their conversation
+    private final MessageTemplate moves = MessageTemplate.MatchPerformative(ACLMessage.INFORM);
+    private final DecimalFormat payoffFormat = new DecimalFormat("#.###");
+
+    public MessageTournament(Agent hub, int R) {
+        this.hub = hub;
+        this.R = R;
+    }
+
+    /**
+     * @param binary whether the player reads the binary game messages
+     * @param batch replicas of a player that supports batch play, null to ask it for every move
+     */
+    public void addPlayer(MainAgent.PlayerInformation player, boolean binary, Supplier<Strategy> batch) {
+        players.add(player);
+        this.binary.add(binary);
+        this.batch.add(batch);
+    }
+
+    /**
+     * Games played at once, each in its own conversation
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public void setPayoffs(PayoffMatrix payoffs) {
+        this.payoffs = payoffs;
+    }
+
+    /**
+     * Probability that a move is flipped after the player picked it
+     */
+    public void setNoise(double noise) {
+        this.noise = noise;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Milliseconds a player has to answer a move request, 0 waits forever
+     */
+    public void setMoveTimeout(int moveTimeout) {
+        this.moveTimeout = moveTimeout;
+    }
+
+    /**
+     * Move played for a player that missed the deadline, a move or FORFEIT
+     */
+    public void setTimeoutMove(int timeoutMove) {
+        this.timeoutMove = timeoutMove;
+    }
+
+    /**
+     * Every roundSample-th round of a game is recorded as a flight recorder event, 0 records none
+     */
+    public void setRoundSample(int roundSample) {
+        this.roundSample = roundSample;
+    }
+
+    /**
+     * Pairings found in the store are merged without being played, the others are added to it
+     */
+    public void setPairingStore(TournamentEngine.PairingStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Skips the games before the given one in schedule order, which were played
+     * before a checkpoint. The players must already hold their statistics.
+     */
+    public void setFirstGame(int firstGame) {
+        this.firstGame = firstGame;
+    }
+
+    /**
+     * Every game played move by move or in batch is appended to the log
+     */
+    public void setMoveLog(MoveLog moveLog) {
+        this.moveLog = moveLog;
+    }
+
+    public void setGameListener(TournamentEngine.GameListener listener) {
+        this.listener = listener;
+    }
+
+    public void setPause(Pause pause) {
+        this.pause = pause;
+    }
+
+    public void setLog(Consumer<String> log) {
+        this.log = log;
+    }
+
+    public List<MainAgent.PlayerInformation> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Tells the players their ids, then plays every pairing once in the same schedule
+     * as TournamentEngine. Must be called on the hub agent's thread.
+     */
+    public void play() {
+        int n = players.size();
+        for (MainAgent.PlayerInformation player : players) {
+            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+            msg.setContent("Id#" + player.id + "#" + n + "," + R);
+            msg.addReceiver(player.aid);
+            post(msg);
+        }
+        int games = n * (n - 1) / 2;
+        TournamentEngine.Schedule schedule = new TournamentEngine.Schedule(n, seed, firstGame);
+        boolean[] playing = new boolean[n];
+        //Next games that have not started, in schedule order
+        LinkedList<TournamentEngine.Pairing> pending = new LinkedList<>();
+        TournamentEngine.Pairing next = schedule.next();
+        Map<String, Game> inFlight = new HashMap<>();
+        //Game in flight of each playing agent, for replies that do not carry the ids of their game
+        Map<AID, Game> bySender = new HashMap<>();
+        Map<Integer, Game> finished = new HashMap<>();
+        int gamesPlayed = firstGame;
+        while (gamesPlayed < games) {
+            if (pause != null && pause.await(gamesPlayed)) {
+                for (Game game : inFlight.values()) {
+                    game.deadline = System.nanoTime() + moveTimeout * 1000000L;
+                }
+            }
+            while (pending.size() < SCHEDULE_WINDOW && next != null) {
+                pending.add(next);
+                next = schedule.next();
+            }
+            for (Iterator<TournamentEngine.Pairing> it = pending.iterator(); it.hasNext() && inFlight.size() < parallelism; ) {
+                TournamentEngine.Pairing pairing = it.next();
+                if (playing[pairing.first] || playing[pairing.second]) continue;
+                it.remove();
+                Game game = new Game(pairing.game, pairing.first, pairing.second, pairing.seed);
+                game.start();
+                if (game.over) {
+                    finished.put(game.index, game);
+                } else {
+                    playing[pairing.first] = true;
+                    playing[pairing.second] = true;
+                    inFlight.put(game.conversationId, game);
+                    bySender.put(game.player1.aid, game);
+                    bySender.put(game.player2.aid, game);
+                }
+            }
+            while (finished.containsKey(gamesPlayed)) {
+                merge(finished.remove(gamesPlayed), ++gamesPlayed);
+            }
+            if (inFlight.isEmpty()) continue;
+
+            //Wait for a move of any game in flight, or until the first deadline
+            long waitStart = System.nanoTime();
+            ACLMessage move;
+            if (moveTimeout > 0) {
+                long firstDeadline = Long.MAX_VALUE;
+                for (Game game : inFlight.values()) {
+                    firstDeadline = Math.min(firstDeadline, game.deadline);
+                }
+                //blockingReceive waits forever when given 0 ms
+                long remaining = (firstDeadline - waitStart) / 1000000L;
+                move = remaining > 0 ? hub.blockingReceive(moves, remaining) : null;
+            } else {
+                move = hub.blockingReceive(moves);
+            }
+            receiveTime.recordSince(waitStart);
+            if (move != null) {
+                messages.increment();
+                Game game;
+                if (move.getConversationId() == null || move.getInReplyTo() == null) {
+                    //Players that do not echo the ids of the request are in one game at most
+                    game = bySender.get(move.getSender());
+                } else {
+                    game = inFlight.get(move.getConversationId());
+                    if (game != null && !game.template.match(move)) game = null;
+                }
+                if (game == null) {
+                    log.accept("Main discarded a late or unexpected message from " + move.getSender().getName());
+                    continue;
+                }
+                game.receive(move);
+            } else {
+                long now = System.nanoTime();
+                for (Game game : inFlight.values()) {
+                    if (now - game.deadline >= 0) game.expire();
+                }
+            }
+            for (Iterator<Game> it = inFlight.values().iterator(); it.hasNext(); ) {
+                Game game = it.next();
+                if (!game.over) continue;
+                it.remove();
+                bySender.remove(game.player1.aid);
+                bySender.remove(game.player2.aid);
+                playing[game.player1.id] = false;
+                playing[game.player2.id] = false;
+                finished.put(game.index, game);
+            }
+        }
+    }
+
+    /**
+     * Adds a finished game to the players' statistics, in schedule order
+     */
+    private void merge(Game game, int gamesPlayed) {
+        MainAgent.PlayerInformation player1 = game.player1, player2 = game.player2;
+        game.result.applyTo(player1, player2, payoffs);
+        MainAgent.closeGame(player1, player2);
+        checkSlow(player1);
+        checkSlow(player2);
+        if (store != null && !game.stored) store.put(player1, player2, game.result);
+        commitGame(game.event, game.index, player1, player2, game.result, payoffs, game.mode);
+        if (listener != null) listener.gameOver(player1, player2, game.result, gamesPlayed);
+    }
+
+    /**
+     * Completes and commits a game event if the flight recorder is recording it
+     *
+     * @param mode how the game was played: messages, batch, inProcess or stored
+     */
+    static void commitGame(GameEvent event, int game, MainAgent.PlayerInformation player1, MainAgent.PlayerInformation player2,
+                           GameResult result, PayoffMatrix payoffs, String mode) {
+        if (!event.shouldCommit()) return;
+        event.game = game;
+        event.player1 = player1.id;
+        event.player2 = player2.id;
+        event.name1 = player1.aid.getLocalName();
+        event.name2 = player2.aid.getLocalName();
+        event.rounds = result.getRounds();
+        event.payoff1 = result.averagePayoff1(payoffs);
+        event.payoff2 = result.averagePayoff2(payoffs);
+        event.mode = mode;
+        event.commit();
+    }
+
+    private static void commitRound(int game, int round, MainAgent.PlayerInformation player1, MainAgent.PlayerInformation player2, int outcome) {
+        RoundEvent event = new RoundEvent();
+        if (!event.shouldCommit()) return;
+        event.game = game;
+        event.round = round;
+        event.player1 = player1.id;
+        event.player2 = player2.id;
+        event.move1 = Strategy.moveName(GameResult.move1(outcome));
+        event.move2 = Strategy.moveName(GameResult.move2(outcome));
+        event.commit();
+    }
+
+    /**
+     * A game played in its own conversation. It is advanced by the moves routed
+     * to it and asks for the next round as soon as one is complete.
+     */
+    private class Game {
+
+        final int index;
+        final MainAgent.PlayerInformation player1, player2;
+        final boolean binary1, binary2;
+        final Supplier<Strategy> batch1, batch2;
+        final String conversationId;
+        //Same draws as TournamentEngine.playPairing, so a pairing plays alike on every path
+        final SplittableRandom random;
+        final int numRounds;
+        final SplittableRandom random1, random2;
+        final GameEvent event = new GameEvent();
+        final long start = System.nanoTime();
+        GameResult result = new GameResult();
+        byte[] outcomes;
+        String mode = "messages";
+        boolean stored, over;
+        int round;
+        //Replies of both players to the request of the current round
+        MessageTemplate template;
+        long deadline, roundStart;
+        int action1, action2;
+
+        Game(int index, int first, int second, long seed) {
+            this.index = index;
+            player1 = players.get(first);
+            player2 = players.get(second);
+            binary1 = binary.get(first);
+            binary2 = binary.get(second);
+            batch1 = batch.get(first);
+            batch2 = batch.get(second);
+            conversationId = "game-" + conversations.incrementAndGet();
+            random = new SplittableRandom(seed);
+            numRounds = TournamentEngine.numRounds(R, random);
+            random1 = random.split();
+            random2 = random.split();
+            event.begin();
+        }
+
+        void start() {
+            GameResult previous = store != null ? store.get(player1, player2) : null;
+            if (previous != null) {
+                //Played by an earlier tournament, only scored again
+                result = previous;
+                mode = "stored";
+                stored = true;
+                over = true;
+                event.end();
+            } else if (batch1 != null && batch2 != null) {
+                Strategy strategy1 = batch1.get(), strategy2 = batch2.get();
+                strategy1.setRandom(random1);
+                strategy2.setRandom(random2);
+                mode = "batch";
+                playBatch(strategy1, strategy2);
+                finish();
+            } else {
+                if (moveLog != null) outcomes = new byte[numRounds];
+                requestMoves();
+            }
+        }
+
+        /**
+         * Plays the whole game with local replicas of two batch players and sends
+         * them every move in one message instead of exchanging messages each round
+         */
+        private void playBatch(Strategy strategy1, Strategy strategy2) {
+            outcomes = new byte[numRounds];
+            result = TournamentEngine.playGame(strategy1, strategy2, numRounds, noise, random, outcomes);
+            rounds.add(numRounds);
+            for (int r = 0; roundSample > 0 && r < numRounds; r += roundSample) {
+                commitRound(index, r, player1, player2, outcomes[r]);
+            }
+
+            StringBuilder content = new StringBuilder(2 * numRounds + 32);
+            content.append("Batch#").append(player1.id).append(',').append(player2.id).append('#');
+            for (byte outcome : outcomes) {
+                content.append(Strategy.moveName(GameResult.move1(outcome)));
+            }
+            content.append(',');
+            for (byte outcome : outcomes) {
+                content.append(Strategy.moveName(GameResult.move2(outcome)));
+            }
+
+            sendNewGame();
+
+            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+            msg.addReceiver(player1.aid);
+            msg.addReceiver(player2.aid);
+            msg.setConversationId(conversationId);
+            msg.setContent(content.toString());
+            post(msg);
+            log.accept("Main played " + player1.aid.getLocalName() + " vs " + player2.aid.getLocalName() + " in batch, " + numRounds + " rounds");
+        }
+
+        /**
+         * Asks both players for the move of the next round, or ends the game after the last one
+         */
+        private void requestMoves() {
+            if (round == numRounds) {
+                finish();
+                return;
+            }
+            roundStart = System.nanoTime();
+            //Assuming player1.id < player2.id
+            sendNewGame();
+
+            //Both players decide simultaneously, so ask them together and take the replies in any order.
+            //Replies carry the token of the request, so a late move is never taken for one of a later round
+            String replyWith = conversationId + "-" + round;
+            ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+            msg.setContent("Action");
+            msg.setConversationId(conversationId);
+            msg.setReplyWith(replyWith);
+            msg.addReceiver(player1.aid);
+            msg.addReceiver(player2.aid);
+            post(msg);
+            result.moveRequests++;
+            template = MessageTemplate.and(
+                    MessageTemplate.and(MessageTemplate.MatchConversationId(conversationId), MessageTemplate.MatchInReplyTo(replyWith)),
+                    MessageTemplate.or(MessageTemplate.MatchSender(player1.aid), MessageTemplate.MatchSender(player2.aid)));
+            deadline = roundStart + moveTimeout * 1000000L;
+            action1 = -1;
+            action2 = -1;
+        }
+
+        void receive(ACLMessage move) {
+            if (codec.decode(move) != GameCodec.POSITION) {
+                log.accept("Main Received unexpected message from " + move.getSender().getName());
+                return;
+            }
+            log.accept("Main Received Position#" + Strategy.moveName(codec.move1) + " from " + move.getSender().getName());
+            if (move.getSender().equals(player1.aid)) {
+                action1 = codec.move1;
+            } else {
+                action2 = codec.move1;
+            }
+            if (action1 >= 0 && action2 >= 0) completeRound(false, false);
+        }
+
+        /**
+         * Plays the default move for the players that did not answer before the deadline
+         */
+        void expire() {
+            boolean late1 = action1 < 0, late2 = action2 < 0;
+            if (late1) {
+                result.timeouts1++;
+                action1 = missedDeadline(player1);
+            }
+            if (late2) {
+                result.timeouts2++;
+                action2 = missedDeadline(player2);
+            }
+            completeRound(late1, late2);
+        }
+
+        private void completeRound(boolean late1, boolean late2) {
+            if (noise > 0) {
+                //Drawn for late players too, so the draws of the next rounds do not depend on timeouts
+                action1 = TournamentEngine.tremble(action1, noise, random);
+                action2 = TournamentEngine.tremble(action2, noise, random);
+            }
+            //The move of a late player is the hub's, not one the player executed, so noise leaves it alone
+            if (timeoutMove == FORFEIT && (late1 || late2)) {
+                //The late player is scored as exploited, both defect if both were late
+                action1 = late1 && !late2 ? Strategy.COOPERATE : Strategy.DEFECT;
+                action2 = late2 && !late1 ? Strategy.COOPERATE : Strategy.DEFECT;
+            } else {
+                if (late1) action1 = timeoutMove;
+                if (late2) action2 = timeoutMove;
+            }
+            int outcome = GameResult.outcome(action1, action2);
+            result.recordRepeated(outcome, 1);
+            if (outcomes != null) outcomes[round] = (byte) outcome;
+            sendResults(outcome);
+            rounds.increment();
+            roundTime.recordSince(roundStart);
+            if (roundSample > 0 && round % roundSample == 0) {
+                commitRound(index, round, player1, player2, outcome);
+            }
+            round++;
+            requestMoves();
+        }
+
+        /**
+         * Tells both players the game is over, so they can be paired again
+         */
+        private void finish() {
+            long finishStart = System.nanoTime();
+            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+            msg.addReceiver(player1.aid);
+            msg.addReceiver(player2.aid);
+            msg.setConversationId(conversationId);
+            msg.setContent("GameOver#" + player1.id + "," + player2.id + "#"
+                    + payoffFormat.format((float) result.averagePayoff1(payoffs)) + ","
+                    + payoffFormat.format((float) result.averagePayoff2(payoffs)));
+            post(msg);
+            if (moveLog != null && outcomes != null) moveLog.append(index, outcomes, numRounds);
+            template = null;
+            over = true;
+            event.end();
+            endGameTime.recordSince(finishStart);
+            gameTime.recordSince(start);
+        }
+
+        private void sendNewGame() {
+            if (binary1 || binary2) {
+                ACLMessage msg = messageTo(true);
+                msg.setByteSequenceContent(GameCodec.encodeNewGame(player1.id, player2.id));
+                post(msg);
+            }
+            if (!binary1 || !binary2) {
+                ACLMessage msg = messageTo(false);
+                msg.setContent(GameCodec.newGameText(player1.id, player2.id));
+                post(msg);
+            }
+        }
+
+        private void sendResults(int outcome) {
+            int move1 = GameResult.move1(outcome), move2 = GameResult.move2(outcome);
+            int payoff1 = payoffs.payoff1(outcome), payoff2 = payoffs.payoff2(outcome);
+            if (binary1 || binary2) {
+                ACLMessage msg = messageTo(true);
+                msg.setByteSequenceContent(GameCodec.encodeResults(player1.id, player2.id, move1, move2, payoff1, payoff2));
+                post(msg);
+            }
+            if (!binary1 || !binary2) {
+                ACLMessage msg = messageTo(false);
+                msg.setContent(GameCodec.resultsText(player1.id, player2.id, move1, move2, payoff1, payoff2));
+                post(msg);
+            }
+        }
+
+        /**
+         * @return INFORM of the game's conversation addressed to its players that use the given encoding
+         */
+        private ACLMessage messageTo(boolean binary) {
+            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+            msg.setConversationId(conversationId);
+            if (binary1 == binary) msg.addReceiver(player1.aid);
+            if (binary2 == binary) msg.addReceiver(player2.aid);
+            return msg;
+        }
+    }
+
+    /**
+     * Logs that a player did not answer in time, its game counts the timeout
+     *
+     * @return move played in its place, any move if it forfeits the round
+     */
+    private int missedDeadline(MainAgent.PlayerInformation player) {
+        timeouts.increment();
+        log.accept("Main got no move from " + player.aid.getName() + " within " + moveTimeout + " ms");
+        return timeoutMove == FORFEIT ? Strategy.DEFECT : timeoutMove;
+    }
+
+    /**
+     * Flags a player as slow once the merged games show it, so a checkpoint
+     * never holds the timeouts of a game in flight
+     */
+    private void checkSlow(MainAgent.PlayerInformation player) {
+        if (player.isSlow() && !player.flaggedSlow) {
+            player.flaggedSlow = true;
+            log.accept("Player " + player.aid.getLocalName() + " is persistently slow : " + player.timeouts + " of "
+                    + player.moveRequests + " moves late");
+        }
+    }
+
+    /**
+     * Sends a game message and records the time spent in send
+     */
+    private void post(ACLMessage msg) {
+        long start = System.nanoTime();
+        hub.send(msg);
+        sendTime.recordSince(start);
+        messages.increment();
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only binary log of every round of a tournament, written through
+ * memory-mapped windows of the file. Read it back with {@link MoveLogReader}.
+ * <pre>
+ * header : magic version players games dataStart (ints)
+ * index  : per game in schedule order, offset (long) and rounds (int), rounds -1 if not logged
+ * names  : per player, length (short) and UTF-8 bytes
+ * data   : per logged game, 2 bits per round (the outcome code, see GameResult),
+ *          four rounds per byte from the lowest bits, starting on a new byte
+ * </pre>
+ * Games are numbered in the schedule order of {@link TournamentEngine.Schedule},
+ * so the players of a game follow from its number. They can be appended in any
+ * order, and from several threads.
+ */
+public class MoveLog implements Closeable {
+
+    static final int MAGIC = 0x4950444d;
+    static final int VERSION = 2;
+    static final int HEADER = 20;
+    static final int INDEX_ENTRY = 12;
+
+    private static final int WINDOW = 1 << 26;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer index;
+    private final int games;
+    private long end;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private MoveLog(RandomAccessFile file, MappedByteBuffer index, int games, long end) {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.index = index;
+        this.games = games;
+        this.end = end;
+    }
+
+    /**
+     * Opens the log of a tournament between the given players
+     *
+     * @param append keeps the games of an existing log of the same players, as when resuming from a checkpoint
+     */
+    public static MoveLog open(File path, List<MainAgent.PlayerInformation> players, boolean append) throws IOException {
+        int n = players.size();
+        long games = (long) n * (n - 1) / 2;
+        if (HEADER + games * INDEX_ENTRY > Integer.MAX_VALUE) throw new IOException("Too many games to log: " + games);
+        byte[][] names = new byte[n][];
+        long dataStart = HEADER + games * INDEX_ENTRY;
+        for (int i = 0; i < n; i++) {
+            names[i] = players.get(i).aid.getName().getBytes(StandardCharsets.UTF_8);
+            dataStart += 2 + names[i].length;
+        }
+
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            if (append && file.length() >= dataStart && file.readInt() == MAGIC && file.readInt() == VERSION
+                    && file.readInt() == n && file.readInt() == games && file.readInt() == dataStart && sameNames(file, names, games)) {
+                MappedByteBuffer index = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER + games * INDEX_ENTRY);
+                long end = dataStart;
+                for (int g = 0; g < games; g++) {
+                    int rounds = index.getInt(HEADER + g * INDEX_ENTRY + 8);
+                    if (rounds >= 0) end = Math.max(end, index.getLong(HEADER + g * INDEX_ENTRY) + bytes(rounds));
+                }
+                return new MoveLog(file, index, (int) games, end);
+            }
+            file.setLength(0);
+            MappedByteBuffer index = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER + games * INDEX_ENTRY);
+            index.putInt(MAGIC).putInt(VERSION).putInt(n).putInt((int) games).putInt((int) dataStart);
+            for (int g = 0; g < games; g++) {
+                index.putLong(0).putInt(-1);
+            }
+            file.seek(HEADER + games * INDEX_ENTRY);
+            for (byte[] name : names) {
+                file.writeShort(name.length);
+                file.write(name);
+            }
+            return new MoveLog(file, index, (int) games, dataStart);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static boolean sameNames(RandomAccessFile file, byte[][] names, long games) throws IOException {
+        file.seek(HEADER + games * INDEX_ENTRY);
+        for (byte[] name : names) {
+            byte[] logged = new byte[file.readUnsignedShort()];
+            file.readFully(logged);
+            if (!Arrays.equals(name, logged)) return false;
+        }
+        return true;
+    }
+
+    static long bytes(int rounds) {
+        return (rounds + 3) >>> 2;
+    }
+
+    /**
+     * Appends the rounds of a game
+     *
+     * @param game number of the game in schedule order
+     * @param outcomes outcome code of every round
+     */
+    public synchronized void append(int game, byte[] outcomes, int rounds) {
+        if (game < 0 || game >= games) throw new IllegalArgumentException("No game " + game);
+        long offset = end;
+        try {
+            for (int r = 0; r < rounds; r += 4) {
+                int packed = 0;
+                for (int k = 0; k < 4 && r + k < rounds; k++) {
+                    packed |= (outcomes[r + k] & 3) << (2 * k);
+                }
+                put(end++, (byte) packed);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        index.putLong(HEADER + game * INDEX_ENTRY, offset);
+        index.putInt(HEADER + game * INDEX_ENTRY + 8, rounds);
+    }
+
+    private void put(long position, byte value) throws IOException {
+        if (window == null || position < windowStart || position >= windowStart + WINDOW) {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WINDOW);
+        }
+        window.put((int) (position - windowStart), value);
+    }
+
+    /**
+     * Cuts the file after the last game, the mapped windows may have made it longer
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        index.force();
+        if (window != null) window.force();
+        window = null;
+        try {
+            channel.truncate(end);
+        } catch (IOException e) {
+            // some platforms refuse while the windows are still mapped, the tail is only padding
+        }
+        file.close();
+    }
+}
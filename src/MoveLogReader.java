@@ -0,0 +1,214 @@
+import jade.core.AID;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Random access to the games of a {@link MoveLog}. The index and the data are
+ * mapped read-only, the data in windows of 1 GB, and the outcome counts of a game are summed a byte (four
+ * rounds) at a time through a lookup table.
+ *
+ * Run it to print the statistics of a logged tournament:
+ * <pre>java MoveLogReader tournament.moves [T,R,P,S]</pre>
+ */
+public class MoveLogReader implements Closeable {
+
+    private static final int WINDOW_BITS = 30;
+    // counts of CC, CD, DC and DD in a byte of four rounds, one byte each
+    private static final int[] BYTE_COUNTS = new int[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            int counts = 0;
+            for (int k = 0; k < 4; k++) {
+                counts += 1 << (8 * ((b >>> (2 * k)) & 3));
+            }
+            BYTE_COUNTS[b] = counts;
+        }
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer index;
+    private final MappedByteBuffer[] windows;
+    private final int players;
+    private final int games;
+    private final String[] names;
+
+    public MoveLogReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            if (file.readInt() != MoveLog.MAGIC || file.readInt() != MoveLog.VERSION) throw new IOException("Not a move log: " + path);
+            players = file.readInt();
+            games = file.readInt();
+            file.readInt();
+            file.seek(MoveLog.HEADER + (long) games * MoveLog.INDEX_ENTRY);
+            names = new String[players];
+            for (int i = 0; i < players; i++) {
+                byte[] name = new byte[file.readUnsignedShort()];
+                file.readFully(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            index = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, MoveLog.HEADER + (long) games * MoveLog.INDEX_ENTRY);
+            long length = file.length();
+            windows = new MappedByteBuffer[(int) ((length >>> WINDOW_BITS) + 1)];
+            for (int w = 0; w < windows.length; w++) {
+                long start = (long) w << WINDOW_BITS;
+                windows[w] = file.getChannel().map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << WINDOW_BITS, length - start));
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private byte get(long position) {
+        return windows[(int) (position >>> WINDOW_BITS)].get((int) (position & ((1 << WINDOW_BITS) - 1)));
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public String getName(int player) {
+        return names[player];
+    }
+
+    /**
+     * @return rounds of a game, -1 if it was not logged
+     */
+    public int getRounds(int game) {
+        return index.getInt(MoveLog.HEADER + game * MoveLog.INDEX_ENTRY + 8);
+    }
+
+    private long getOffset(int game) {
+        return index.getLong(MoveLog.HEADER + game * MoveLog.INDEX_ENTRY);
+    }
+
+    /**
+     * @return first player of a game in schedule order
+     */
+    public int getPlayer1(int game) {
+        return TournamentEngine.Schedule.first(players, game);
+    }
+
+    public int getPlayer2(int game) {
+        return TournamentEngine.Schedule.second(players, game);
+    }
+
+    /**
+     * @return outcome of a round, see GameResult
+     */
+    public int getOutcome(int game, int round) {
+        return (get(getOffset(game) + (round >>> 2)) >>> (2 * (round & 3))) & 3;
+    }
+
+    /**
+     * @return outcome counts of a game, null if it was not logged
+     */
+    public GameResult getResult(int game) {
+        int rounds = getRounds(game);
+        if (rounds < 0) return null;
+        long offset = getOffset(game);
+        long cc = 0, cd = 0, dc = 0, dd = 0;
+        int full = rounds >>> 2;
+        for (int b = 0; b < full; ) {
+            // counts of up to 63 bytes fit in a byte each
+            int packed = 0;
+            for (int stop = Math.min(full, b + 63); b < stop; b++) {
+                packed += BYTE_COUNTS[get(offset + b) & 0xff];
+            }
+            cc += packed & 0xff;
+            cd += (packed >>> 8) & 0xff;
+            dc += (packed >>> 16) & 0xff;
+            dd += packed >>> 24;
+        }
+        GameResult result = new GameResult();
+        result.recordRepeated(GameResult.CC, (int) cc);
+        result.recordRepeated(GameResult.CD, (int) cd);
+        result.recordRepeated(GameResult.DC, (int) dc);
+        result.recordRepeated(GameResult.DD, (int) dd);
+        for (int r = full << 2; r < rounds; r++) {
+            result.recordRepeated(getOutcome(game, r), 1);
+        }
+        return result;
+    }
+
+    /**
+     * Feeds the logged moves of a game to two strategies, as if they played it
+     *
+     * @return rounds in which a strategy chose another move than the logged one, as noise does
+     */
+    public int replay(int game, Strategy strategy1, Strategy strategy2) {
+        int rounds = getRounds(game);
+        int differences = 0;
+        strategy1.newGame();
+        strategy2.newGame();
+        for (int r = 0; r < rounds; r++) {
+            int outcome = getOutcome(game, r);
+            int move1 = GameResult.move1(outcome), move2 = GameResult.move2(outcome);
+            if (strategy1.nextMove() != move1) differences++;
+            if (strategy2.nextMove() != move2) differences++;
+            strategy1.saveOpponentMove(move1, move2);
+            strategy2.saveOpponentMove(move2, move1);
+        }
+        return differences;
+    }
+
+    /**
+     * Rebuilds the statistics of the players from the logged games, in schedule order
+     */
+    public List<MainAgent.PlayerInformation> rebuild(PayoffMatrix payoffs) {
+        List<MainAgent.PlayerInformation> result = new ArrayList<>(players);
+        for (int i = 0; i < players; i++) {
+            result.add(new MainAgent.PlayerInformation(new AID(names[i], AID.ISGUID), i));
+        }
+        for (int game = 0; game < games; game++) {
+            GameResult outcomes = getResult(game);
+            if (outcomes == null) continue;
+            MainAgent.PlayerInformation player1 = result.get(getPlayer1(game));
+            MainAgent.PlayerInformation player2 = result.get(getPlayer2(game));
+            outcomes.applyTo(player1, player2, payoffs);
+            MainAgent.closeGame(player1, player2);
+        }
+        for (MainAgent.PlayerInformation player : result) {
+            player.calcFinalPayoff();
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java MoveLogReader <move log> [T,R,P,S | game name]");
+            return;
+        }
+        PayoffMatrix payoffs = args.length > 1 ? PayoffMatrix.parse(args[1]) : PayoffMatrix.PRISONERS_DILEMMA;
+        try (MoveLogReader reader = new MoveLogReader(new File(args[0]))) {
+            int logged = 0;
+            for (int game = 0; game < reader.getGames(); game++) {
+                if (reader.getRounds(game) >= 0) logged++;
+            }
+            System.out.println(logged + " of " + reader.getGames() + " games logged, payoffs " + payoffs);
+            System.out.println("player\tgames\twon\tcooperations\tdefections\tavg payoff");
+            for (MainAgent.PlayerInformation player : reader.rebuild(payoffs)) {
+                System.out.println(player.aid.getName() + "\t" + player.gamesPlayed + "\t" + player.gamesWon + "\t"
+                        + player.cooperations + "\t" + player.defections + "\t" + player.finalPayoff);
+            }
+        }
+    }
+}
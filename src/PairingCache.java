@@ -0,0 +1,226 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Outcome counts of pairings already played, so repeated tournaments over the
+ * same strategies only play the pairings they have never seen.
+ *
+ * A key holds the identity of both strategies with a checksum of their class
+ * files, the number of rounds, the noise, and the pairing seed when the game
+ * draws random numbers. Outcome counts do not depend on the payoff matrix, so
+ * the payoffs and averages are computed from them instead of being part of the key.
+ *
+ * The most recently used entries are kept in memory. With a file, every entry is
+ * also appended to it, and entries that are not in memory are read back from it.
+ * Once the file holds maxFileEntries entries it becomes the old generation, in
+ * path.old, and a new file is started; the generation before is deleted. Entries
+ * read from the old generation are appended to the new one, so the pairings in
+ * use survive while the file and its index in memory stay bounded.
+ */
+public class PairingCache implements Closeable {
+
+    private static final Map<Class<?>, String> VERSIONS = new ConcurrentHashMap<>();
+
+    private final Map<String, int[]> entries;
+    private final File path, oldPath;
+    private final int maxFileEntries;
+    // current and old generation of the file, null without a file
+    private RandomAccessFile file, oldFile;
+    // offset of every entry of each generation
+    private Map<String, Long> index = new HashMap<>(), oldIndex = new HashMap<>();
+    private long hits, misses;
+
+    public PairingCache(int maxEntries) {
+        entries = lru(maxEntries);
+        path = null;
+        oldPath = null;
+        maxFileEntries = 0;
+    }
+
+    /**
+     * @param path file of the on-disk tier, created if it does not exist
+     * @param maxFileEntries entries of a generation of the file
+     */
+    public PairingCache(int maxEntries, File path, int maxFileEntries) throws IOException {
+        entries = lru(maxEntries);
+        this.path = path;
+        oldPath = new File(path.getPath() + ".old");
+        this.maxFileEntries = Math.max(1, maxFileEntries);
+        file = new RandomAccessFile(path, "rw");
+        readIndex(file, index);
+        if (oldPath.isFile()) {
+            oldFile = new RandomAccessFile(oldPath, "rw");
+            readIndex(oldFile, oldIndex);
+        }
+    }
+
+    private static void readIndex(RandomAccessFile file, Map<String, Long> index) throws IOException {
+        long offset = 0;
+        long length = file.length();
+        try {
+            while (offset < length) {
+                file.seek(offset);
+                String key = file.readUTF();
+                long end = file.getFilePointer() + 16;
+                if (end > length) break;
+                index.put(key, offset);
+                offset = end;
+            }
+        } catch (IOException e) {
+            // entry cut short by a crash
+        }
+        // drops a partial last entry, the next one overwrites it
+        file.setLength(offset);
+    }
+
+    private static Map<String, int[]> lru(int maxEntries) {
+        return new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param pairingSeed only part of the key when one of the strategies is random or there is noise
+     */
+    public static String key(Strategy strategy1, Strategy strategy2, int numRounds, double noise, long pairingSeed) {
+        StringBuilder key = new StringBuilder(96)
+                .append(strategy1.identity()).append('@').append(version(strategy1.getClass())).append('|')
+                .append(strategy2.identity()).append('@').append(version(strategy2.getClass())).append('|')
+                .append(numRounds);
+        if (noise > 0 || !strategy1.isDeterministic() || !strategy2.isDeterministic()) {
+            key.append('|').append(noise).append('|').append(pairingSeed);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return checksum of the class files of a strategy and its superclasses
+     */
+    static String version(Class<?> type) {
+        return VERSIONS.computeIfAbsent(type, t -> {
+            CRC32 crc = new CRC32();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                try (InputStream in = c.getResourceAsStream(c.getSimpleName() + ".class")) {
+                    if (in == null) continue;
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) bytes.write(buffer, 0, n);
+                    crc.update(bytes.toByteArray());
+                } catch (IOException e) {
+                    // no checksum for this class
+                }
+            }
+            return Long.toHexString(crc.getValue());
+        });
+    }
+
+    /**
+     * @return cached result, or null if the pairing has never been played
+     */
+    public synchronized GameResult get(String key) {
+        int[] counts = entries.get(key);
+        if (counts == null && file != null) {
+            try {
+                Long offset = index.get(key);
+                if (offset != null) {
+                    counts = read(file, offset);
+                } else if (oldFile != null && (offset = oldIndex.get(key)) != null) {
+                    counts = read(oldFile, offset);
+                    append(key, counts);
+                }
+                if (counts != null) entries.put(key, counts);
+            } catch (IOException e) {
+                counts = null;
+            }
+        }
+        if (counts == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        GameResult result = new GameResult();
+        for (int outcome = 0; outcome < 4; outcome++) result.recordRepeated(outcome, counts[outcome]);
+        return result;
+    }
+
+    public synchronized void put(String key, GameResult result) {
+        int[] counts = new int[4];
+        for (int outcome = 0; outcome < 4; outcome++) counts[outcome] = result.getCount(outcome);
+        entries.put(key, counts);
+        if (file != null && !index.containsKey(key)) {
+            try {
+                append(key, counts);
+            } catch (IOException e) {
+                // the entry stays in memory only
+            }
+        }
+    }
+
+    private static int[] read(RandomAccessFile file, long offset) throws IOException {
+        file.seek(offset);
+        file.readUTF();
+        int[] counts = new int[4];
+        for (int outcome = 0; outcome < 4; outcome++) counts[outcome] = file.readInt();
+        return counts;
+    }
+
+    /**
+     * Appends an entry to the current generation, starting a new one when it is full
+     */
+    private void append(String key, int[] counts) throws IOException {
+        if (index.size() >= maxFileEntries) rotate();
+        long offset = file.length();
+        file.seek(offset);
+        file.writeUTF(key);
+        for (int count : counts) file.writeInt(count);
+        index.put(key, offset);
+    }
+
+    private void rotate() throws IOException {
+        if (oldFile != null) oldFile.close();
+        file.close();
+        oldFile = null;
+        oldIndex = index;
+        index = new HashMap<>();
+        try {
+            Files.move(path.toPath(), oldPath.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            oldFile = new RandomAccessFile(oldPath, "rw");
+            file = new RandomAccessFile(path, "rw");
+        } catch (IOException e) {
+            // without its files the cache keeps to memory
+            if (oldFile != null) oldFile.close();
+            oldFile = null;
+            file = null;
+            throw e;
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (file != null) file.close();
+        if (oldFile != null) oldFile.close();
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Payoffs of a symmetric 2x2 game: temptation T (D against C), reward R (C,C),
+ * punishment P (D,D) and sucker S (C against D). Scoring is a lookup by the
+ * 2-bit outcome code of GameResult.
+ */
+public final class PayoffMatrix {
+
+    public static final PayoffMatrix PRISONERS_DILEMMA = new PayoffMatrix(5, 3, 1, 0);
+    public static final PayoffMatrix STAG_HUNT = new PayoffMatrix(3, 4, 1, 0);
+    public static final PayoffMatrix SNOWDRIFT = new PayoffMatrix(5, 3, 0, 1);
+
+    public final int T, R, P, S;
+    // payoff of the first player indexed by outcome: CC, CD, DC, DD
+    private final int[] table;
+
+    public PayoffMatrix(int T, int R, int P, int S) {
+        this.T = T;
+        this.R = R;
+        this.P = P;
+        this.S = S;
+        table = new int[] {R, S, T, P};
+    }
+
+    public int payoff1(int outcome) {
+        return table[outcome];
+    }
+
+    public int payoff2(int outcome) {
+        return table[GameResult.swap(outcome)];
+    }
+
+    /**
+     * Parses either the name of a known game or the payoffs as T,R,P,S
+     *
+     * @throws IllegalArgumentException if the text is not valid
+     */
+    public static PayoffMatrix parse(String text) {
+        String value = text.trim();
+        switch (value.toLowerCase()) {
+            case "prisoners-dilemma":
+                return PRISONERS_DILEMMA;
+            case "stag-hunt":
+                return STAG_HUNT;
+            case "snowdrift":
+                return SNOWDRIFT;
+        }
+        String[] payoffs = value.split("[,;\\s]+");
+        if (payoffs.length != 4) throw new IllegalArgumentException("Expected T,R,P,S but got " + text);
+        return new PayoffMatrix(Integer.parseInt(payoffs[0]), Integer.parseInt(payoffs[1]),
+                Integer.parseInt(payoffs[2]), Integer.parseInt(payoffs[3]));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PayoffMatrix)) return false;
+        PayoffMatrix other = (PayoffMatrix) o;
+        return T == other.T && R == other.R && P == other.P && S == other.S;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((T * 31 + R) * 31 + P) * 31 + S;
+    }
+
+    @Override
+    public String toString() {
+        return T + "," + R + "," + P + "," + S;
+    }
+}
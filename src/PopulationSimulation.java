@@ -0,0 +1,277 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Evolves a large population of individuals playing a fixed set of strategies,
+ * either well-mixed with the Moran birth-death process or on a square lattice
+ * (torus) where every cell plays its eight neighbours.
+ *
+ * An individual is a short, the index of its strategy, so a population of a
+ * million takes two megabytes. Games are not replayed: the payoff of strategy i
+ * against strategy j is read from the average payoff matrix of an
+ * {@link EcologicalTournament}.
+ */
+public class PopulationSimulation {
+
+    public enum Model {
+        MORAN, LATTICE
+    }
+
+    private final Model model;
+    // average payoff per round of strategy i against strategy j at [i * k + j]
+    private final double[] a;
+    private final int k;
+    private final int size;
+    private final int side;
+    private short[] cells;
+    private short[] next;
+    private double[] scores;
+    private final int[] counts;
+    // Moran: total payoff against the whole population, self included, of each strategy
+    private final double[] payoffSums;
+    private final double[] shares;
+    private final SplittableRandom random;
+    private double selection = 0.1;
+    private int parallelism = 1;
+    private ForkJoinPool pool;
+
+    /**
+     * @param size individuals, a lattice takes the largest square that fits
+     * @param seed seed of the random initial population and of the Moran process
+     */
+    public PopulationSimulation(Model model, double[] payoffMatrix, int strategies, int size, long seed) {
+        this.model = model;
+        this.a = payoffMatrix;
+        if (strategies < 1 || strategies > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Population needs between 1 and " + Short.MAX_VALUE + " strategies: " + strategies);
+        }
+        this.k = strategies;
+        if (model == Model.LATTICE) {
+            side = (int) Math.sqrt(size);
+            this.size = side * side;
+        } else {
+            side = 0;
+            this.size = size;
+        }
+        if (this.size < 2) throw new IllegalArgumentException("Population too small: " + size);
+        random = new SplittableRandom(seed);
+        cells = new short[this.size];
+        counts = new int[k];
+        payoffSums = new double[k];
+        shares = new double[k];
+        for (int c = 0; c < this.size; c++) {
+            cells[c] = (short) random.nextInt(k);
+            counts[cells[c]]++;
+        }
+        if (model == Model.LATTICE) {
+            next = new short[this.size];
+            scores = new double[this.size];
+        } else {
+            for (int i = 0; i < k; i++) {
+                for (int j = 0; j < k; j++) {
+                    payoffSums[i] += a[i * k + j] * counts[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Intensity of selection w of the Moran process, the fitness of an individual
+     * is 1 - w + w * payoff
+     */
+    public void setSelection(double selection) {
+        this.selection = selection;
+    }
+
+    /**
+     * Number of threads updating lattice tiles at once
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return individuals of every strategy, owned by the simulation
+     */
+    public int[] getCounts() {
+        return counts;
+    }
+
+    public short[] getCells() {
+        return cells;
+    }
+
+    /**
+     * Runs the simulation, only the current population is kept in memory
+     *
+     * @param snapshotEvery generations between two snapshots, which also include the first and last one
+     * @param snapshots if not null, receives a CSV line with the counts of every strategy per snapshot
+     * @param listener if not null, receives the shares of every snapshot
+     */
+    public void run(int generations, int snapshotEvery, String[] names, Writer snapshots,
+                    EcologicalTournament.GenerationListener listener) throws IOException {
+        if (snapshots != null) {
+            snapshots.write("generation");
+            for (String name : names) snapshots.write("," + name);
+            snapshots.write('\n');
+        }
+        if (parallelism > 1 && model == Model.LATTICE) pool = new ForkJoinPool(parallelism);
+        try {
+            snapshot(0, snapshots, listener);
+            for (int g = 1; g <= generations; g++) {
+                generation();
+                if (g % snapshotEvery == 0 || g == generations) snapshot(g, snapshots, listener);
+            }
+        } finally {
+            if (pool != null) pool.shutdownNow();
+            pool = null;
+            if (snapshots != null) snapshots.flush();
+        }
+    }
+
+    private void snapshot(int generation, Writer snapshots, EcologicalTournament.GenerationListener listener) throws IOException {
+        if (snapshots != null) {
+            StringBuilder line = new StringBuilder(12 + 8 * k).append(generation);
+            for (int i = 0; i < k; i++) line.append(',').append(counts[i]);
+            snapshots.write(line.append('\n').toString());
+        }
+        if (listener != null) {
+            for (int i = 0; i < k; i++) shares[i] = (double) counts[i] / size;
+            listener.generation(generation, shares);
+        }
+    }
+
+    /**
+     * Advances one generation: size birth-death events of the Moran process, or
+     * one synchronous update of the whole lattice
+     */
+    public void generation() {
+        if (model == Model.MORAN) {
+            for (int e = 0; e < size; e++) moranEvent();
+        } else {
+            latticeGeneration();
+        }
+    }
+
+    /**
+     * An individual is chosen to reproduce with probability proportional to its
+     * fitness, and its offspring replaces an individual chosen uniformly
+     */
+    private void moranEvent() {
+        double total = 0;
+        for (int i = 0; i < k; i++) {
+            total += counts[i] * fitness(i);
+        }
+        double pick = random.nextDouble() * total;
+        int birth = k - 1;
+        for (int i = 0; i < k - 1; i++) {
+            pick -= counts[i] * fitness(i);
+            if (pick < 0) {
+                birth = i;
+                break;
+            }
+        }
+        int c = random.nextInt(size);
+        int death = cells[c];
+        if (death == birth) return;
+        cells[c] = (short) birth;
+        counts[death]--;
+        counts[birth]++;
+        for (int i = 0; i < k; i++) {
+            payoffSums[i] += a[i * k + birth] - a[i * k + death];
+        }
+    }
+
+    private double fitness(int i) {
+        // average payoff against every other individual
+        double payoff = (payoffSums[i] - a[i * k + i]) / (size - 1);
+        return 1 - selection + selection * payoff;
+    }
+
+    /**
+     * Every cell sums its payoffs against its eight neighbours, then takes the
+     * strategy of the best scoring cell of its neighbourhood, itself included.
+     * Each phase is split in tiles of whole rows, so a tile reads and writes
+     * contiguous memory, and the result does not depend on the parallelism.
+     */
+    private void latticeGeneration() {
+        int tiles = pool == null ? 1 : Math.min(side, parallelism * 4);
+        int[][] tileCounts = new int[tiles][k];
+        forEachTile(tiles, (from, to, t) -> score(from, to));
+        forEachTile(tiles, (from, to, t) -> imitate(from, to, tileCounts[t]));
+        short[] swap = cells;
+        cells = next;
+        next = swap;
+        for (int i = 0; i < k; i++) {
+            int count = 0;
+            for (int t = 0; t < tiles; t++) count += tileCounts[t][i];
+            counts[i] = count;
+        }
+    }
+
+    private interface Tile {
+        void update(int fromRow, int toRow, int tile);
+    }
+
+    private void forEachTile(int tiles, Tile tile) {
+        if (tiles == 1) {
+            tile.update(0, side, 0);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(tiles);
+        for (int t = 0; t < tiles; t++) {
+            int from = (int) ((long) side * t / tiles), to = (int) ((long) side * (t + 1) / tiles), id = t;
+            tasks.add(() -> {
+                tile.update(from, to, id);
+                return null;
+            });
+        }
+        pool.invokeAll(tasks).forEach(task -> {
+            try {
+                task.get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void score(int fromRow, int toRow) {
+        for (int y = fromRow; y < toRow; y++) {
+            int up = (y + side - 1) % side * side, row = y * side, down = (y + 1) % side * side;
+            for (int x = 0; x < side; x++) {
+                int left = (x + side - 1) % side, right = (x + 1) % side;
+                int self = cells[row + x] * k;
+                scores[row + x] = a[self + cells[up + left]] + a[self + cells[up + x]] + a[self + cells[up + right]]
+                        + a[self + cells[row + left]] + a[self + cells[row + right]]
+                        + a[self + cells[down + left]] + a[self + cells[down + x]] + a[self + cells[down + right]];
+            }
+        }
+    }
+
+    private void imitate(int fromRow, int toRow, int[] tileCounts) {
+        for (int y = fromRow; y < toRow; y++) {
+            int row = y * side;
+            for (int x = 0; x < side; x++) {
+                int best = row + x;
+                for (int dy = side - 1; dy <= side + 1; dy++) {
+                    int r = (y + dy) % side * side;
+                    for (int dx = side - 1; dx <= side + 1; dx++) {
+                        int c = r + (x + dx) % side;
+                        if (scores[c] > scores[best]) best = c;
+                    }
+                }
+                next[row + x] = cells[best];
+                tileCounts[cells[best]]++;
+            }
+        }
+    }
+}
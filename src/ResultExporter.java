@@ -0,0 +1,175 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Streams the results of a tournament to disk while it runs: one record per
+ * pairing as soon as it is merged, and one per player at the end.
+ *
+ * The binary file is columnar. Records are collected in blocks of BLOCK rows,
+ * and each block is written with a single channel write, one column after the
+ * other, so only one block is ever held in memory:
+ * <pre>
+ * header  : magic version T R P S (ints)
+ * block   : type (1 pairings, 2 players) rows (int) columns...
+ * pairings: id1 id2 rounds cc cd dc dd (int columns) payoff1 payoff2 (double columns)
+ * players : id gamesPlayed gamesWon cooperations defections (int columns)
+ *           finalPayoff stdDev (double columns) name (short length and UTF-8 bytes per row)
+ * </pre>
+ * The same records can also go to two CSV files, prefix-pairings.csv and prefix-players.csv.
+ */
+public class ResultExporter implements Closeable {
+
+    static final int MAGIC = 0x49504452;
+    static final int VERSION = 1;
+    static final byte PAIRINGS = 1;
+    static final byte PLAYERS = 2;
+    static final int BLOCK = 4096;
+
+    private final PayoffMatrix payoffs;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int[][] ints = new int[7][BLOCK];
+    private final double[][] doubles = new double[2][BLOCK];
+    private int rows;
+    private final Writer pairingsCsv;
+    private final Writer playersCsv;
+
+    /**
+     * @param binary columnar file, null to skip it
+     * @param csvPrefix prefix of the CSV files, null to skip them
+     */
+    public ResultExporter(File binary, String csvPrefix, PayoffMatrix payoffs) throws IOException {
+        this.payoffs = payoffs;
+        if (binary != null) {
+            channel = FileChannel.open(binary.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            buffer = ByteBuffer.allocateDirect(5 + BLOCK * (7 * 4 + 2 * 8));
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(payoffs.T).putInt(payoffs.R).putInt(payoffs.P).putInt(payoffs.S);
+            write();
+        } else {
+            channel = null;
+            buffer = null;
+        }
+        if (csvPrefix != null) {
+            pairingsCsv = csv(csvPrefix + "-pairings.csv");
+            pairingsCsv.write("id1,id2,player1,player2,rounds,cc,cd,dc,dd,payoff1,payoff2\n");
+            playersCsv = csv(csvPrefix + "-players.csv");
+            playersCsv.write("id,player,gamesPlayed,gamesWon,cooperations,defections,finalPayoff,stdDev\n");
+        } else {
+            pairingsCsv = null;
+            playersCsv = null;
+        }
+    }
+
+    private static Writer csv(String path) throws IOException {
+        FileChannel file = FileChannel.open(new File(path).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedWriter(Channels.newWriter(file, StandardCharsets.UTF_8.newEncoder(), -1), 1 << 16);
+    }
+
+    private void write() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Adds the result of a pairing, seen from player1
+     */
+    public void pairing(MainAgent.PlayerInformation player1, MainAgent.PlayerInformation player2, GameResult result) throws IOException {
+        double payoff1 = result.averagePayoff1(payoffs), payoff2 = result.averagePayoff2(payoffs);
+        if (channel != null) {
+            ints[0][rows] = player1.id;
+            ints[1][rows] = player2.id;
+            ints[2][rows] = result.getRounds();
+            for (int outcome = 0; outcome < 4; outcome++) {
+                ints[3 + outcome][rows] = result.getCount(outcome);
+            }
+            doubles[0][rows] = payoff1;
+            doubles[1][rows] = payoff2;
+            if (++rows == BLOCK) flushPairings();
+        }
+        if (pairingsCsv != null) {
+            pairingsCsv.append(String.valueOf(player1.id)).append(',').append(String.valueOf(player2.id))
+                    .append(',').append(player1.aid.getLocalName()).append(',').append(player2.aid.getLocalName())
+                    .append(',').append(String.valueOf(result.getRounds()));
+            for (int outcome = 0; outcome < 4; outcome++) {
+                pairingsCsv.append(',').append(String.valueOf(result.getCount(outcome)));
+            }
+            pairingsCsv.append(',').append(String.valueOf(payoff1)).append(',').append(String.valueOf(payoff2)).append('\n');
+        }
+    }
+
+    private void flushPairings() throws IOException {
+        if (rows == 0) return;
+        buffer.put(PAIRINGS).putInt(rows);
+        for (int[] column : ints) {
+            buffer.asIntBuffer().put(column, 0, rows);
+            buffer.position(buffer.position() + 4 * rows);
+        }
+        for (double[] column : doubles) {
+            buffer.asDoubleBuffer().put(column, 0, rows);
+            buffer.position(buffer.position() + 8 * rows);
+        }
+        write();
+        rows = 0;
+    }
+
+    /**
+     * Adds the final results of the players, once the tournament is over
+     */
+    public void players(List<MainAgent.PlayerInformation> players) throws IOException {
+        if (channel != null) {
+            flushPairings();
+            for (int from = 0; from < players.size(); from += BLOCK) {
+                List<MainAgent.PlayerInformation> block = players.subList(from, Math.min(players.size(), from + BLOCK));
+                ByteBuffer out = ByteBuffer.allocate(5 + block.size() * (5 * 4 + 2 * 8));
+                out.put(PLAYERS).putInt(block.size());
+                for (MainAgent.PlayerInformation player : block) out.putInt(player.id);
+                for (MainAgent.PlayerInformation player : block) out.putInt(player.gamesPlayed);
+                for (MainAgent.PlayerInformation player : block) out.putInt(player.gamesWon);
+                for (MainAgent.PlayerInformation player : block) out.putInt(player.cooperations);
+                for (MainAgent.PlayerInformation player : block) out.putInt(player.defections);
+                for (MainAgent.PlayerInformation player : block) out.putDouble(player.finalPayoff);
+                for (MainAgent.PlayerInformation player : block) out.putDouble(player.avgPayoff.getStdDev());
+                out.flip();
+                while (out.hasRemaining()) channel.write(out);
+                for (MainAgent.PlayerInformation player : block) {
+                    byte[] name = player.aid.getName().getBytes(StandardCharsets.UTF_8);
+                    buffer.putShort((short) name.length).put(name);
+                    if (buffer.remaining() < 2 + 65535) write();
+                }
+                write();
+            }
+        }
+        if (playersCsv != null) {
+            for (MainAgent.PlayerInformation player : players) {
+                playersCsv.append(String.valueOf(player.id)).append(',').append(player.aid.getLocalName())
+                        .append(',').append(String.valueOf(player.gamesPlayed)).append(',').append(String.valueOf(player.gamesWon))
+                        .append(',').append(String.valueOf(player.cooperations)).append(',').append(String.valueOf(player.defections))
+                        .append(',').append(String.valueOf(player.finalPayoff)).append(',').append(String.valueOf(player.avgPayoff.getStdDev()))
+                        .append('\n');
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (channel != null) {
+                flushPairings();
+                channel.close();
+            }
+        } finally {
+            if (pairingsCsv != null) pairingsCsv.close();
+            if (playersCsv != null) playersCsv.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a sampled round, one in roundSample rounds of the
+ * games played through messages or in batch
+ */
+@Name("ipd.Round")
+@Label("Round")
+@Category("IPD")
+@Description("A sampled round of a game")
+public class RoundEvent extends Event {
+
+    @Label("Game")
+    int game;
+
+    @Label("Round")
+    int round;
+
+    @Label("Player 1")
+    int player1;
+
+    @Label("Player 2")
+    int player2;
+
+    @Label("Move 1")
+    String move1;
+
+    @Label("Move 2")
+    String move2;
+}
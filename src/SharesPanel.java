@@ -0,0 +1,70 @@
+import javax.swing.*;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plots the population share of every strategy along the generations of an
+ * ecological tournament. Points are added on the event dispatch thread, and
+ * every other one is dropped when there are more than MAX_POINTS.
+ */
+public class SharesPanel extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_POINTS = 2000;
+    private static final Color[] COLORS = {Color.BLUE, Color.RED, new Color(0, 150, 0), Color.ORANGE,
+            Color.MAGENTA, Color.CYAN.darker(), Color.GRAY, Color.PINK.darker(), Color.BLACK};
+
+    private final String[] names;
+    private final List<Integer> generations = new ArrayList<>();
+    private final List<double[]> shares = new ArrayList<>();
+
+    public SharesPanel(String[] names) {
+        this.names = names;
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(800, 500));
+    }
+
+    public void addShares(int generation, double[] s) {
+        if (generations.size() >= MAX_POINTS) {
+            for (int i = generations.size() - 1; i > 0; i -= 2) {
+                generations.remove(i - 1);
+                shares.remove(i - 1);
+            }
+        }
+        generations.add(generation);
+        shares.add(s);
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        int left = 40, top = 10, right = 160, bottom = 25;
+        int width = getWidth() - left - right;
+        int height = getHeight() - top - bottom;
+        g.setColor(Color.LIGHT_GRAY);
+        g.drawRect(left, top, width, height);
+        g.drawString("1", left - 15, top + 10);
+        g.drawString("0", left - 15, top + height);
+        if (generations.isEmpty()) return;
+
+        int last = Math.max(1, generations.get(generations.size() - 1));
+        g.drawString("generation " + last, left + width - 100, top + height + 18);
+        for (int k = 0; k < names.length; k++) {
+            g.setColor(COLORS[k % COLORS.length]);
+            int prevX = -1, prevY = -1;
+            for (int p = 0; p < generations.size(); p++) {
+                int x = left + (int) ((long) width * generations.get(p) / last);
+                int y = top + height - (int) (height * shares.get(p)[k]);
+                if (prevX >= 0) g.drawLine(prevX, prevY, x, y);
+                prevX = x;
+                prevY = y;
+            }
+            String share = String.format("%.3f", shares.get(shares.size() - 1)[k]);
+            g.drawString(names[k] + " " + share, left + width + 10, top + 15 + 15 * k);
+        }
+    }
+}
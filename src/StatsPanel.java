@@ -0,0 +1,78 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+
+import java.awt.*;
+import java.text.DecimalFormat;
+import java.util.List;
+
+/**
+ * Live view of the tournament stats: throughput on top and a table of the
+ * latency percentiles, refreshed once a second on the event dispatch thread.
+ */
+public class StatsPanel extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNS = {"Timer", "Count", "p50 (us)", "p99 (us)", "p999 (us)", "Max (us)"};
+
+    private final TournamentStatsMXBean stats;
+    private final JLabel throughput = new JLabel();
+    private final DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final DecimalFormat format = new DecimalFormat("0.0");
+    private final Timer timer;
+
+    public StatsPanel(TournamentStatsMXBean stats) {
+        super(new BorderLayout());
+        this.stats = stats;
+        JButton reset = new JButton("Reset");
+        reset.addActionListener(actionEvent -> {
+            stats.reset();
+            refresh();
+        });
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(throughput, BorderLayout.CENTER);
+        top.add(reset, BorderLayout.EAST);
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(new JTable(model)), BorderLayout.CENTER);
+        setPreferredSize(new Dimension(600, 250));
+        timer = new Timer(1000, actionEvent -> refresh());
+        refresh();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    private void refresh() {
+        throughput.setText(" Rounds : " + stats.getRounds() + " (" + format.format(stats.getRoundsPerSecond()) + "/s)"
+                + "    Messages : " + stats.getMessages() + " (" + format.format(stats.getMessagesPerSecond()) + "/s)");
+        List<LatencyHistogram.Summary> latencies = stats.getLatencies();
+        model.setRowCount(latencies.size());
+        for (int row = 0; row < latencies.size(); row++) {
+            LatencyHistogram.Summary summary = latencies.get(row);
+            model.setValueAt(summary.getName(), row, 0);
+            model.setValueAt(summary.getCount(), row, 1);
+            model.setValueAt(micros(summary.getP50()), row, 2);
+            model.setValueAt(micros(summary.getP99()), row, 3);
+            model.setValueAt(micros(summary.getP999()), row, 4);
+            model.setValueAt(micros(summary.getMax()), row, 5);
+        }
+    }
+
+    private String micros(long nanos) {
+        return format.format(nanos / 1000.0);
+    }
+}
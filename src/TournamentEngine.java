@@ -0,0 +1,485 @@
+import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Plays a round-robin tournament in-process, calling the players' strategies
+ * directly instead of exchanging ACL messages with the agents. Statistics are
+ * accumulated into the same PlayerInformation objects the JADE path fills.
+ *
+ * Every pairing draws its number of rounds, its strategies' random moves and its
+ * noise from its own SplittableRandom, seeded from the tournament seed, so
+ * pairings share no random generator and each one can be replayed from its seed.
+ */
+public class TournamentEngine {
+
+    public interface GameListener {
+        void gameOver(MainAgent.PlayerInformation player1, MainAgent.PlayerInformation player2, GameResult result, int gamesPlayed);
+    }
+
+    /**
+     * Results of pairings played by earlier tournaments
+     */
+    public interface PairingStore {
+        /**
+         * @return result of the pairing as seen from player1, or null if it has to be played
+         */
+        GameResult get(MainAgent.PlayerInformation player1, MainAgent.PlayerInformation player2);
+
+        void put(MainAgent.PlayerInformation player1, MainAgent.PlayerInformation player2, GameResult result);
+    }
+
+    // rounds of a game during which the joint states are tracked looking for a cycle
+    private static final int CYCLE_WINDOW = 1 << 10;
+    // pairings submitted ahead of the merge per thread, which bounds the results held at once
+    private static final int WINDOW_PER_THREAD = 16;
+
+    private final List<MainAgent.PlayerInformation> players = new ArrayList<>();
+    private final List<Supplier<Strategy>> strategies = new ArrayList<>();
+    private final int R;
+    private int parallelism = 1;
+    private PayoffMatrix payoffs = PayoffMatrix.PRISONERS_DILEMMA;
+    private double noise;
+    private long seed = new SplittableRandom().nextLong();
+    private GameListener listener;
+    private PairingCache cache;
+    private PairingStore store;
+    private int firstGame;
+    private MoveLog moveLog;
+
+    public TournamentEngine(int R) {
+        this.R = R;
+    }
+
+    public void addPlayer(MainAgent.PlayerInformation player, Supplier<Strategy> strategy) {
+        players.add(player);
+        strategies.add(strategy);
+    }
+
+    public void setGameListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Number of threads playing pairings at once, 1 plays them on the calling thread
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public void setPayoffs(PayoffMatrix payoffs) {
+        this.payoffs = payoffs;
+    }
+
+    /**
+     * Probability that a move is flipped after the strategy picked it
+     */
+    public void setNoise(double noise) {
+        this.noise = noise;
+    }
+
+    /**
+     * Pairings found in the cache are not played, the others are added to it
+     */
+    public void setCache(PairingCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Pairings found in the store are merged without being played, the others are added to it
+     */
+    public void setPairingStore(PairingStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Every game played is appended to the log, cached pairings are played again
+     * so their moves can be logged
+     */
+    public void setMoveLog(MoveLog moveLog) {
+        this.moveLog = moveLog;
+    }
+
+    /**
+     * Skips the games before the given one in schedule order, which were played
+     * before a checkpoint. The players must already hold their statistics.
+     */
+    public void setFirstGame(int firstGame) {
+        this.firstGame = firstGame;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public List<MainAgent.PlayerInformation> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Plays every pairing once. Pairings may run on several threads, but their
+     * results are merged into the players on the calling thread in the same
+     * order as the JADE path, so the statistics do not depend on the parallelism.
+     */
+    public void play() {
+        Schedule schedule = new Schedule(players.size(), seed, firstGame);
+        if (parallelism == 1) {
+            for (Pairing pairing = schedule.next(); pairing != null; pairing = schedule.next()) {
+                GameResult result = stored(pairing);
+                if (result == null) result = store(pairing.first, pairing.second, playPairing(pairing.first, pairing.second, pairing.game, pairing.seed));
+                merge(pairing.first, pairing.second, pairing.game, result);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                //Pairings submitted ahead of the merge, at most WINDOW_PER_THREAD per thread
+                ArrayDeque<Submitted> window = new ArrayDeque<>();
+                Pairing next = schedule.next();
+                while (next != null || !window.isEmpty()) {
+                    while (next != null && window.size() < parallelism * WINDOW_PER_THREAD) {
+                        Pairing pairing = next;
+                        GameResult result = stored(pairing);
+                        window.add(new Submitted(pairing, result, result != null ? null
+                                : pool.submit(() -> playPairing(pairing.first, pairing.second, pairing.game, pairing.seed))));
+                        next = schedule.next();
+                    }
+                    Submitted submitted = window.poll();
+                    Pairing pairing = submitted.pairing;
+                    GameResult result = submitted.stored;
+                    if (result == null) result = store(pairing.first, pairing.second, submitted.task.join());
+                    merge(pairing.first, pairing.second, pairing.game, result);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        for (MainAgent.PlayerInformation player : players) {
+            player.calcFinalPayoff();
+        }
+    }
+
+    /**
+     * A pairing submitted to the pool, task is null if its result was stored
+     */
+    private static final class Submitted {
+
+        final Pairing pairing;
+        final GameResult stored;
+        final ForkJoinTask<GameResult> task;
+
+        Submitted(Pairing pairing, GameResult stored, ForkJoinTask<GameResult> task) {
+            this.pairing = pairing;
+            this.stored = stored;
+            this.task = task;
+        }
+    }
+
+    /**
+     * @return result of the pairing kept by the store, null if it has to be played
+     */
+    private GameResult stored(Pairing pairing) {
+        return store != null ? store.get(players.get(pairing.first), players.get(pairing.second)) : null;
+    }
+
+    private GameResult store(int i, int j, GameResult result) {
+        if (store != null) store.put(players.get(i), players.get(j), result);
+        return result;
+    }
+
+    private GameResult playPairing(int i, int j, int game, long pairingSeed) {
+        Strategy strategy1 = strategies.get(i).get(), strategy2 = strategies.get(j).get();
+        if (moveLog != null) return playPairing(strategy1, strategy2, R, noise, pairingSeed, moveLog, game);
+        if (cache == null) return playPairing(strategy1, strategy2, R, noise, pairingSeed);
+        // first draw of the pairing's stream, as in playPairing
+        int numRounds = numRounds(R, new SplittableRandom(pairingSeed));
+        String key = PairingCache.key(strategy1, strategy2, numRounds, noise, pairingSeed);
+        GameResult result = cache.get(key);
+        if (result == null) {
+            result = playPairing(strategy1, strategy2, R, noise, pairingSeed);
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * A pairing of a round-robin: its number in schedule order, both players and its seed
+     */
+    public static final class Pairing {
+
+        public final int game, first, second;
+        public final long seed;
+
+        Pairing(int game, int first, int second, long seed) {
+            this.game = game;
+            this.first = first;
+            this.second = second;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * Walks the pairings of a round-robin in schedule order, drawing the seed of
+     * each pairing from the tournament seed as it goes, so the schedule of a large
+     * tournament is never held in memory.
+     *
+     * The order is that of the circle method: players/2 pairings per round, in
+     * which every player plays at most once, so a block of consecutive pairings
+     * can be played at the same time whatever the number of players.
+     */
+    public static final class Schedule {
+
+        private final int players;
+        private final int games;
+        private final SplittableRandom seeds;
+        private int game = -1;
+
+        /**
+         * @param firstGame number of the first pairing returned, the ones before are skipped
+         */
+        public Schedule(int players, long tournamentSeed, int firstGame) {
+            this.players = players;
+            games = (int) ((long) players * (players - 1) / 2);
+            seeds = new SplittableRandom(tournamentSeed);
+            for (int k = 0; k < firstGame; k++) {
+                if (next() == null) break;
+            }
+        }
+
+        /**
+         * @return next pairing, null after the last one
+         */
+        public Pairing next() {
+            if (game + 1 >= games) return null;
+            game++;
+            return new Pairing(game, first(players, game), second(players, game), seeds.nextLong());
+        }
+
+        /**
+         * @return lower id of the two players of a game
+         */
+        public static int first(int players, int game) {
+            return Math.min(player(players, game, 0), player(players, game, 1));
+        }
+
+        /**
+         * @return higher id of the two players of a game
+         */
+        public static int second(int players, int game) {
+            return Math.max(player(players, game, 0), player(players, game, 1));
+        }
+
+        /**
+         * Players 0..m-2 turn around a circle while player m-1 stays put, where m is
+         * players rounded up to even; with an odd number of players m-1 is the bye.
+         */
+        private static int player(int players, int game, int side) {
+            int turning = players % 2 == 0 ? players - 1 : players;
+            int round = game / (players / 2), slot = game % (players / 2) + players % 2;
+            if (slot == 0) return side == 0 ? turning : round;
+            return side == 0 ? (round + slot) % turning : (round - slot + turning) % turning;
+        }
+    }
+
+    /**
+     * Plays one pairing of a tournament, the result depends only on the strategies and the seed
+     */
+    public static GameResult playPairing(Strategy strategy1, Strategy strategy2, int R, double noise, long pairingSeed) {
+        return playPairing(strategy1, strategy2, R, noise, pairingSeed, null, 0);
+    }
+
+    /**
+     * @param moveLog if not null, receives the moves of the game
+     * @param game number of the game in schedule order, for the move log
+     */
+    public static GameResult playPairing(Strategy strategy1, Strategy strategy2, int R, double noise, long pairingSeed, MoveLog moveLog, int game) {
+        SplittableRandom random = new SplittableRandom(pairingSeed);
+        int numRounds = numRounds(R, random);
+        strategy1.setRandom(random.split());
+        strategy2.setRandom(random.split());
+        byte[] outcomes = moveLog != null ? new byte[numRounds] : null;
+        GameResult result = playGame(strategy1, strategy2, numRounds, noise, random, outcomes);
+        if (moveLog != null) moveLog.append(game, outcomes, numRounds);
+        return result;
+    }
+
+    private void merge(int i, int j, int game, GameResult result) {
+        MainAgent.PlayerInformation player1 = players.get(i);
+        MainAgent.PlayerInformation player2 = players.get(j);
+        result.applyTo(player1, player2, payoffs);
+        MainAgent.closeGame(player1, player2);
+        if (listener != null) listener.gameOver(player1, player2, result, game + 1);
+    }
+
+    public static GameResult playGame(Strategy strategy1, Strategy strategy2, int numRounds) {
+        return playGame(strategy1, strategy2, numRounds, 0, null, null);
+    }
+
+    /**
+     * Plays a game. Without noise, when both strategies are deterministic and
+     * report their state, the joint state is tracked during the first rounds: as
+     * soon as it repeats the game is in a cycle, and the remaining rounds are
+     * counted from the rounds of the cycle instead of being played. The
+     * strategies are then left in the state where the cycle was found.
+     *
+     * @param noise probability that a move is flipped, the strategies see the flipped moves
+     * @param random draws the noise, may be null without noise
+     * @param outcomes if not null, receives the outcome code of every round
+     */
+    public static GameResult playGame(Strategy strategy1, Strategy strategy2, int numRounds, double noise, SplittableRandom random, byte[] outcomes) {
+        GameResult result = new GameResult();
+        strategy1.newGame();
+        strategy2.newGame();
+        boolean detect = noise == 0 && numRounds > 2 && strategy1.isDeterministic() && strategy2.isDeterministic();
+        int window = detect ? Math.min(numRounds, CYCLE_WINDOW) : 0;
+        byte[] played = outcomes != null ? outcomes : detect ? new byte[window] : null;
+        StateTable states = detect ? new StateTable(window) : null;
+        for (int r = 0; r < numRounds; r++) {
+            if (r < window) {
+                int state1 = strategy1.state(), state2 = strategy2.state();
+                if (state1 >= 0 && state2 >= 0) {
+                    int start = states.putIfAbsent(((long) state1 << 32) | state2, r);
+                    if (start >= 0) {
+                        extrapolate(result, played, start, r, numRounds, outcomes);
+                        return result;
+                    }
+                }
+            }
+            int move1 = strategy1.nextMove();
+            int move2 = strategy2.nextMove();
+            if (noise > 0) {
+                move1 = tremble(move1, noise, random);
+                move2 = tremble(move2, noise, random);
+            }
+            strategy1.saveOpponentMove(move1, move2);
+            strategy2.saveOpponentMove(move2, move1);
+            result.record(move1, move2);
+            if (played != null && r < played.length) played[r] = (byte) GameResult.outcome(move1, move2);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the rounds from round end on, which repeat the rounds from start to end
+     */
+    private static void extrapolate(GameResult result, byte[] played, int start, int end, int numRounds, byte[] outcomes) {
+        int length = end - start;
+        int remaining = numRounds - end;
+        for (int k = 0; k < length; k++) {
+            result.recordRepeated(played[start + k], remaining / length + (k < remaining % length ? 1 : 0));
+        }
+        if (outcomes != null) {
+            for (int r = end; r < numRounds; r++) {
+                outcomes[r] = played[start + (r - end) % length];
+            }
+        }
+    }
+
+    /**
+     * Open addressing map from joint state to the first round it was seen in
+     */
+    private static final class StateTable {
+
+        private final long[] keys;
+        private final int[] rounds;
+        private final int mask;
+
+        StateTable(int entries) {
+            int size = Integer.highestOneBit(Math.max(2, entries)) << 2;
+            keys = new long[size];
+            rounds = new int[size];
+            mask = size - 1;
+            Arrays.fill(keys, -1);
+        }
+
+        /**
+         * @return round the state was first seen in, or -1 after storing it with the given round
+         */
+        int putIfAbsent(long key, int round) {
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (keys[slot] != -1) {
+                if (keys[slot] == key) return rounds[slot];
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            rounds[slot] = round;
+            return -1;
+        }
+    }
+
+    /**
+     * Average payoffs per round of a game. When both strategies are memory-one
+     * they are the exact expectations computed by MemoryOneChain, otherwise the
+     * game is played.
+     *
+     * @param random draws the moves of a played game, may be null without noise and random strategies
+     * @param averages receives the average payoffs of the first and the second strategy
+     * @return true if the payoffs were computed instead of played
+     */
+    public static boolean averagePayoffs(Strategy strategy1, Strategy strategy2, int numRounds, double noise, SplittableRandom random,
+                                         PayoffMatrix payoffs, double[] averages) {
+        double[] p = new double[5];
+        double[] q = new double[5];
+        if (numRounds > 0 && strategy1.memoryOne(p) && strategy2.memoryOne(q)) {
+            double[] counts = new double[4];
+            MemoryOneChain.expectedCounts(p, q, noise, numRounds, counts);
+            double payoff1 = 0, payoff2 = 0;
+            for (int outcome = 0; outcome < 4; outcome++) {
+                payoff1 += counts[outcome] * payoffs.payoff1(outcome);
+                payoff2 += counts[outcome] * payoffs.payoff2(outcome);
+            }
+            averages[0] = payoff1 / numRounds;
+            averages[1] = payoff2 / numRounds;
+            return true;
+        }
+        GameResult result = playGame(strategy1, strategy2, numRounds, noise, random, null);
+        averages[0] = result.averagePayoff1(payoffs);
+        averages[1] = result.averagePayoff2(payoffs);
+        return false;
+    }
+
+    /**
+     * @return the move, flipped with probability noise
+     */
+    public static int tremble(int move, double noise, SplittableRandom random) {
+        return random.nextDouble() < noise ? move ^ 1 : move;
+    }
+
+    /**
+     * Number of rounds of one game, slightly below the maximum R
+     */
+    public static int numRounds(int R, SplittableRandom random) {
+        return (int) Math.round(random.nextDouble() / 10 + 0.9 * R);
+    }
+
+    /**
+     * Creates new instances of the strategy class an agent registered in the DF
+     *
+     * @return factory or null when the class is unknown
+     */
+    public static Supplier<Strategy> strategyFactory(String className) {
+        if (className == null) return null;
+        try {
+            Constructor<? extends Strategy> constructor = Class.forName(className).asSubclass(Strategy.class).getConstructor();
+            constructor.newInstance();
+            return () -> {
+                try {
+                    return constructor.newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning a tournament, from the New command to the final ranking
+ */
+@Name("ipd.Tournament")
+@Label("Tournament")
+@Category("IPD")
+@Description("A round-robin tournament run by the main agent")
+public class TournamentEvent extends Event {
+
+    @Label("Seed")
+    long seed;
+
+    @Label("Players")
+    int players;
+
+    @Label("Rounds")
+    @Description("Rounds parameter R, a game lasts about 0.9 R rounds")
+    int rounds;
+
+    @Label("Noise")
+    double noise;
+
+    @Label("In-process")
+    boolean inProcess;
+
+    @Label("First Game")
+    @Description("Index of the first game played, above 0 when resumed from a checkpoint")
+    int firstGame;
+
+    @Label("Games")
+    @Description("Games played or scored again")
+    int games;
+}
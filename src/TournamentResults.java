@@ -0,0 +1,69 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Results of the pairings of previous tournaments, by the names of their
+ * players, so a tournament over a changed roster only plays the pairings that
+ * involve new players. Results are kept as outcome counts and scored again
+ * with the payoff matrix of every tournament.
+ */
+public class TournamentResults implements TournamentEngine.PairingStore {
+
+    private final Map<String, GameResult> results = new HashMap<>();
+    private int R = -1;
+    private double noise;
+
+    /**
+     * Drops the results of players that left the roster, and every result if the
+     * number of rounds or the noise changed
+     *
+     * @return number of results kept
+     */
+    public synchronized int retain(List<MainAgent.PlayerInformation> players, int R, double noise) {
+        if (R != this.R || noise != this.noise) {
+            results.clear();
+            this.R = R;
+            this.noise = noise;
+            return 0;
+        }
+        Set<String> names = new HashSet<>();
+        for (MainAgent.PlayerInformation player : players) {
+            names.add(player.aid.getName());
+        }
+        Iterator<String> keys = results.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            int separator = key.indexOf('\n');
+            if (!names.contains(key.substring(0, separator)) || !names.contains(key.substring(separator + 1))) {
+                keys.remove();
+            }
+        }
+        return results.size();
+    }
+
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    @Override
+    public synchronized GameResult get(MainAgent.PlayerInformation player1, MainAgent.PlayerInformation player2) {
+        GameResult result = results.get(key(player1, player2));
+        if (result != null) return result;
+        result = results.get(key(player2, player1));
+        return result != null ? result.swapped() : null;
+    }
+
+    @Override
+    public synchronized void put(MainAgent.PlayerInformation player1, MainAgent.PlayerInformation player2, GameResult result) {
+        results.remove(key(player2, player1));
+        results.put(key(player1, player2), result);
+    }
+
+    private static String key(MainAgent.PlayerInformation player1, MainAgent.PlayerInformation player2) {
+        return player1.aid.getName() + '\n' + player2.aid.getName();
+    }
+}
@@ -0,0 +1,99 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes the {@link Metrics} of this JVM over JMX. The rates are sampled
+ * once a second by a daemon timer, so reading them from the GUI and from a
+ * JMX console at the same time gives the same values.
+ */
+public class TournamentStats implements TournamentStatsMXBean {
+
+    public static final String NAME = "ipd:type=TournamentStats";
+
+    private final LongAdder rounds = Metrics.counter(Metrics.ROUNDS);
+    private final LongAdder messages = Metrics.counter(Metrics.MESSAGES);
+    private final Timer timer = new Timer("tournament-stats", true);
+    private long lastRounds, lastMessages, lastSample = System.nanoTime();
+    private volatile double roundsPerSecond, messagesPerSecond;
+
+    public TournamentStats() {
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, 1000, 1000);
+    }
+
+    /**
+     * Registers the stats on the platform MBean server
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(NAME);
+        if (server.isRegistered(name)) server.unregisterMBean(name);
+        server.registerMBean(this, name);
+    }
+
+    public void unregister() {
+        timer.cancel();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (JMException e) {
+            // nothing left to clean up
+        }
+    }
+
+    private synchronized void sample() {
+        long now = System.nanoTime();
+        long r = rounds.sum(), m = messages.sum();
+        double seconds = (now - lastSample) / 1e9;
+        roundsPerSecond = Math.max(0, r - lastRounds) / seconds;
+        messagesPerSecond = Math.max(0, m - lastMessages) / seconds;
+        lastRounds = r;
+        lastMessages = m;
+        lastSample = now;
+    }
+
+    @Override
+    public long getRounds() {
+        return rounds.sum();
+    }
+
+    @Override
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    @Override
+    public double getRoundsPerSecond() {
+        return roundsPerSecond;
+    }
+
+    @Override
+    public double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    @Override
+    public List<LatencyHistogram.Summary> getLatencies() {
+        return Metrics.summaries();
+    }
+
+    @Override
+    public synchronized void reset() {
+        Metrics.reset();
+        lastRounds = 0;
+        lastMessages = 0;
+        lastSample = System.nanoTime();
+    }
+}
@@ -0,0 +1,29 @@
+import java.util.List;
+
+/**
+ * Tournament throughput and latencies, registered by the main agent as
+ * {@value TournamentStats#NAME}. Latencies are in nanoseconds.
+ */
+public interface TournamentStatsMXBean {
+
+    long getRounds();
+
+    long getMessages();
+
+    /**
+     * @return rounds per second over the last second
+     */
+    double getRoundsPerSecond();
+
+    /**
+     * @return messages per second over the last second
+     */
+    double getMessagesPerSecond();
+
+    List<LatencyHistogram.Summary> getLatencies();
+
+    /**
+     * Clears every histogram and counter
+     */
+    void reset();
+}
@@ -0,0 +1,27 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning a player's decision of its next move
+ */
+@Name("ipd.Decision")
+@Label("Decision")
+@Category("IPD")
+@Description("A player agent choosing its move")
+public class DecisionEvent extends Event {
+
+    @Label("Agent")
+    String agent;
+
+    @Label("Player")
+    int player;
+
+    @Label("Opponent")
+    int opponent;
+
+    @Label("Move")
+    String move;
+}
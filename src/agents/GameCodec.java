@@ -0,0 +1,204 @@
+import jade.lang.acl.ACLMessage;
+
+/**
+ * Encodes and decodes the per-round game messages (NewGame, Position and Results)
+ * shared by the main agent and the players.
+ *
+ * Players that register the DF property encoding=binary receive fixed-layout byte
+ * content instead of text. Every value is a big-endian int unless noted:
+ * <pre>
+ * NewGame  : type(1 byte) id1 id2
+ * Position : type(1 byte) move(1 byte)
+ * Results  : type(1 byte) id1 id2 outcome(1 byte) payoff1 payoff2
+ * </pre>
+ * The text protocol (NewGame#id1,id2, Position#C, Results#id1,id2#C,D#0,5) stays
+ * available for players that do not register the property, and is parsed here
+ * without splitting the content. A codec instance keeps the fields of the last
+ * decoded message, so decoding does not allocate.
+ */
+public final class GameCodec {
+
+    public static final String ENCODING = "binary";
+
+    public static final byte NONE = 0;
+    public static final byte NEW_GAME = 1;
+    public static final byte POSITION = 2;
+    public static final byte RESULTS = 3;
+
+    public byte type;
+    public boolean binary;
+    public int id1, id2;
+    public int move1, move2;
+    public int payoff1, payoff2;
+
+    private int pos;
+
+    /**
+     * Decodes a game message into the fields of this codec
+     *
+     * @return type of the message, NONE if it is not a game message or it is malformed
+     */
+    public byte decode(ACLMessage msg) {
+        type = NONE;
+        if (msg.hasByteSequenceContent()) {
+            binary = true;
+            decode(msg.getByteSequenceContent());
+        } else {
+            binary = false;
+            String content = msg.getContent();
+            if (content != null) decode(content);
+        }
+        return type;
+    }
+
+    private void decode(byte[] content) {
+        if (content.length < 2) return;
+        pos = 1;
+        switch (content[0]) {
+            case NEW_GAME:
+                if (content.length != 9) return;
+                id1 = readInt(content);
+                id2 = readInt(content);
+                break;
+            case POSITION:
+                //Like a text move other than C or D, any other byte leaves the message undecoded
+                if (content.length != 2 || (content[1] != Strategy.COOPERATE && content[1] != Strategy.DEFECT)) return;
+                move1 = content[1];
+                break;
+            case RESULTS:
+                if (content.length != 18 || (content[9] & ~3) != 0) return;
+                id1 = readInt(content);
+                id2 = readInt(content);
+                move1 = content[pos] >> 1;
+                move2 = content[pos] & 1;
+                pos++;
+                payoff1 = readInt(content);
+                payoff2 = readInt(content);
+                break;
+            default:
+                return;
+        }
+        type = content[0];
+    }
+
+    private void decode(String content) {
+        try {
+            if (content.startsWith("Results#")) {
+                pos = 8;
+                id1 = readInt(content);
+                id2 = readInt(content);
+                move1 = readMove(content);
+                move2 = readMove(content);
+                payoff1 = pos < content.length() ? readInt(content) : 0;
+                payoff2 = pos < content.length() ? readInt(content) : 0;
+                type = RESULTS;
+            } else if (content.startsWith("NewGame#")) {
+                pos = 8;
+                id1 = readInt(content);
+                id2 = readInt(content);
+                type = NEW_GAME;
+            } else if (content.startsWith("Position#")) {
+                pos = 9;
+                move1 = readMove(content);
+                type = POSITION;
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            type = NONE;
+        }
+    }
+
+    /**
+     * Reads a decimal int and skips the separator that follows it
+     */
+    private int readInt(String s) {
+        while (s.charAt(pos) == ' ') pos++;
+        boolean negative = s.charAt(pos) == '-';
+        if (negative) pos++;
+        int start = pos;
+        int value = 0;
+        while (pos < s.length() && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') {
+            value = value * 10 + (s.charAt(pos++) - '0');
+        }
+        if (pos == start) throw new NumberFormatException(s);
+        while (pos < s.length() && s.charAt(pos) == ' ') pos++;
+        pos++;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads a C or D and skips the separator that follows it
+     */
+    private int readMove(String s) {
+        while (s.charAt(pos) == ' ') pos++;
+        char c = s.charAt(pos++);
+        if (c != 'C' && c != 'D') throw new NumberFormatException(s);
+        while (pos < s.length() && s.charAt(pos) == ' ') pos++;
+        pos++;
+        return c == 'D' ? Strategy.DEFECT : Strategy.COOPERATE;
+    }
+
+    private int readInt(byte[] b) {
+        int value = ((b[pos] & 0xff) << 24) | ((b[pos + 1] & 0xff) << 16) | ((b[pos + 2] & 0xff) << 8) | (b[pos + 3] & 0xff);
+        pos += 4;
+        return value;
+    }
+
+    private static int writeInt(byte[] b, int pos, int value) {
+        b[pos] = (byte) (value >>> 24);
+        b[pos + 1] = (byte) (value >>> 16);
+        b[pos + 2] = (byte) (value >>> 8);
+        b[pos + 3] = (byte) value;
+        return pos + 4;
+    }
+
+    public static byte[] encodeNewGame(int id1, int id2) {
+        byte[] b = new byte[9];
+        b[0] = NEW_GAME;
+        writeInt(b, writeInt(b, 1, id1), id2);
+        return b;
+    }
+
+    public static byte[] encodePosition(int move) {
+        return new byte[] {POSITION, (byte) move};
+    }
+
+    public static byte[] encodeResults(int id1, int id2, int move1, int move2, int payoff1, int payoff2) {
+        byte[] b = new byte[18];
+        b[0] = RESULTS;
+        int pos = writeInt(b, writeInt(b, 1, id1), id2);
+        b[pos++] = (byte) ((move1 << 1) | move2);
+        writeInt(b, writeInt(b, pos, payoff1), payoff2);
+        return b;
+    }
+
+    public static String newGameText(int id1, int id2) {
+        return new StringBuilder(24).append("NewGame#").append(id1).append(',').append(id2).toString();
+    }
+
+    public static String resultsText(int id1, int id2, int move1, int move2, int payoff1, int payoff2) {
+        return new StringBuilder(40).append("Results#").append(id1).append(',').append(id2)
+                .append('#').append(Strategy.moveName(move1)).append(',').append(Strategy.moveName(move2))
+                .append('#').append(payoff1).append(',').append(payoff2).toString();
+    }
+
+    /**
+     * @return readable form of the last decoded message, for logging
+     */
+    public String describe() {
+        switch (type) {
+            case NEW_GAME:
+                return newGameText(id1, id2);
+            case POSITION:
+                return "Position#" + Strategy.moveName(move1);
+            case RESULTS:
+                return resultsText(id1, id2, move1, move2, payoff1, payoff2);
+            default:
+                return "";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+}
@@ -0,0 +1,172 @@
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds.
+ *
+ * Values below 16 have a bucket each, larger ones fall in log-linear buckets:
+ * every power of two is split in 16 sub-buckets, so a reported percentile is
+ * within about 6% of the recorded value. Recording is a few bit operations and
+ * one atomic increment, and any number of threads may record while another one
+ * reads percentiles.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Records the time elapsed since start, a value of System.nanoTime()
+     */
+    public void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * @return middle of the values that fall in the bucket
+     */
+    static long value(int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        int shift = bucket / SUB_COUNT - 1;
+        long low = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+        return low + ((1L << shift) >> 1);
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param q quantile between 0 and 1
+     * @return latency in nanoseconds below which a fraction q of the values fall, 0 if nothing was recorded
+     */
+    public long percentile(double q) {
+        long[] copy = new long[BUCKETS];
+        long total = copy(copy);
+        return percentile(copy, total, q);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    /**
+     * Copies the buckets once and reads every percentile from the copy
+     */
+    public Summary summary() {
+        long[] copy = new long[BUCKETS];
+        long total = copy(copy);
+        return new Summary(name, total, percentile(copy, total, 0.5), percentile(copy, total, 0.99),
+                percentile(copy, total, 0.999), max.get());
+    }
+
+    private long copy(long[] copy) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return total;
+    }
+
+    private static long percentile(long[] copy, long total, double q) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < copy.length; i++) {
+            seen += copy[i];
+            if (seen >= rank) return value(i);
+        }
+        return value(copy.length - 1);
+    }
+
+    /**
+     * Percentiles of a histogram at one point in time, in nanoseconds
+     */
+    public static final class Summary {
+
+        private final String name;
+        private final long count;
+        private final long p50, p99, p999, max;
+
+        @ConstructorProperties({"name", "count", "p50", "p99", "p999", "max"})
+        public Summary(String name, long count, long p50, long p99, long p999, long max) {
+            this.name = name;
+            this.count = count;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return name + " : " + count + " values, p50 " + p50 + " ns, p99 " + p99 + " ns, p999 " + p999 + " ns, max " + max + " ns";
+        }
+    }
+}
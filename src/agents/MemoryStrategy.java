@@ -0,0 +1,122 @@
+/**
+ * Memory-n strategy: the move is looked up in a bit table indexed by the last n
+ * outcomes of the game, from this player's point of view (2 bits each, my move
+ * then the opponent's, the last round in the lowest bits, see GameResult). The
+ * first n moves, played before the history is complete, are a second bit set.
+ * A set bit means DEFECT.
+ *
+ * Tables are usually written as strings of 4^n C/D moves, e.g. tit for tat is
+ * "CDCD": C after CC, D after CD, C after DC, D after DD.
+ */
+public class MemoryStrategy implements Strategy {
+
+    private final int n;
+    private final int mask;
+    private final long[] table;
+    private long firstMoves;
+    private int history;
+    private int round;
+
+    /**
+     * @param firstMoves moves of the first n rounds, one C or D each
+     * @param table move after each history, one C or D per entry, 4^n entries
+     */
+    public MemoryStrategy(String firstMoves, String table) {
+        this(firstMoves.length());
+        if (table.length() != entries(n)) throw new IllegalArgumentException("Memory-" + n + " table needs " + entries(n) + " moves: " + table);
+        for (int r = 0; r < n; r++) {
+            if (firstMoves.charAt(r) == 'D') this.firstMoves |= 1L << r;
+        }
+        for (int h = 0; h < table.length(); h++) {
+            if (table.charAt(h) == 'D') this.table[h >>> 6] |= 1L << h;
+        }
+    }
+
+    /**
+     * Memory-n strategy that cooperates in every round until setTable is called
+     */
+    public MemoryStrategy(int n) {
+        if (n < 1 || n > 8) throw new IllegalArgumentException("Memory must be between 1 and 8: " + n);
+        this.n = n;
+        mask = entries(n) - 1;
+        table = new long[Math.max(1, entries(n) >>> 6)];
+    }
+
+    /**
+     * @return number of histories of a memory-n strategy, 4^n
+     */
+    public static int entries(int n) {
+        return 1 << (2 * n);
+    }
+
+    public int getMemory() {
+        return n;
+    }
+
+    /**
+     * Replaces the table, so one instance can evaluate many strategies
+     *
+     * @param table bit h of table[h / 64] is the move after history h
+     */
+    public void setTable(long[] table) {
+        System.arraycopy(table, 0, this.table, 0, this.table.length);
+    }
+
+    /**
+     * @param firstMoves bit r is the move of round r, for the first n rounds
+     */
+    public void setFirstMoves(long firstMoves) {
+        this.firstMoves = firstMoves;
+    }
+
+    @Override
+    public void newGame() {
+        history = 0;
+        round = 0;
+    }
+
+    @Override
+    public int nextMove() {
+        if (round < n) return (int) (firstMoves >>> round) & 1;
+        return (int) (table[history >>> 6] >>> history) & 1;
+    }
+
+    @Override
+    public void saveOpponentMove(int myMove, int opponentMove) {
+        history = ((history << 2) | (myMove << 1) | opponentMove) & mask;
+        round++;
+    }
+
+    @Override
+    public String identity() {
+        return getClass().getName() + ':' + this;
+    }
+
+    @Override
+    public int state() {
+        return round < n ? -1 : history;
+    }
+
+    @Override
+    public boolean memoryOne(double[] p) {
+        if (n != 1) return false;
+        for (int h = 0; h < 4; h++) {
+            p[h] = 1 - ((table[0] >>> h) & 1);
+        }
+        p[4] = 1 - (firstMoves & 1);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder(n + 1 + mask + 1);
+        for (int r = 0; r < n; r++) {
+            s.append(Strategy.moveName((int) (firstMoves >>> r) & 1));
+        }
+        s.append('/');
+        for (int h = 0; h <= mask; h++) {
+            s.append(Strategy.moveName((int) (table[h >>> 6] >>> h) & 1));
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named latency histograms and counters shared by every agent of a JVM.
+ *
+ * The main agent and the players started in the same container record into
+ * the same registry, which the main agent exposes over JMX and in the GUI.
+ * Callers should look a histogram or counter up once and keep it, the lookup
+ * goes through a concurrent map.
+ */
+public final class Metrics {
+
+    /** Rounds played, through messages or by any engine */
+    public static final String ROUNDS = "rounds";
+    /** Game messages sent or received by the main agent */
+    public static final String MESSAGES = "messages";
+
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * @return summaries of every histogram, sorted by name
+     */
+    public static List<LatencyHistogram.Summary> summaries() {
+        List<LatencyHistogram.Summary> summaries = new ArrayList<>();
+        for (LatencyHistogram histogram : new TreeMap<>(histograms).values()) {
+            summaries.add(histogram.summary());
+        }
+        return summaries;
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (LongAdder counter : counters.values()) {
+            counter.reset();
+        }
+    }
+}
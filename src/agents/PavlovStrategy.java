@@ -0,0 +1,10 @@
+/**
+ * Win-stay, lose-switch: cooperates in the first round, repeats its last move
+ * while the opponent cooperates and switches when the opponent defects
+ */
+public class PavlovStrategy extends MemoryStrategy {
+
+    public PavlovStrategy() {
+        super("C", "CDDC");
+    }
+}
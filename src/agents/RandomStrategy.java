@@ -0,0 +1,39 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Picks a move randomly
+ */
+public class RandomStrategy implements Strategy {
+
+    private SplittableRandom random = new SplittableRandom();
+
+    @Override
+    public void newGame() {
+    }
+
+    @Override
+    public int nextMove() {
+        return random.nextBoolean() ? COOPERATE : DEFECT;
+    }
+
+    @Override
+    public void saveOpponentMove(int myMove, int opponentMove) {
+    }
+
+    @Override
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public boolean memoryOne(double[] p) {
+        Arrays.fill(p, 0, 5, 0.5);
+        return true;
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return false;
+    }
+}
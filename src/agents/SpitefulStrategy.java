@@ -0,0 +1,30 @@
+/**
+ * Cooperates until the opponent defects, then defects for the rest of the game.
+ * Only the opponent's defections count: one of its own moves flipped by noise,
+ * or played for it after a timeout, does not start the grudge. It is therefore
+ * not a memory-one table, which would also react to its own last move.
+ */
+public class SpitefulStrategy implements Strategy {
+
+    private boolean oppDefected = false;
+
+    @Override
+    public void newGame() {
+        oppDefected = false;
+    }
+
+    @Override
+    public int nextMove() {
+        return oppDefected ? DEFECT : COOPERATE;
+    }
+
+    @Override
+    public void saveOpponentMove(int myMove, int opponentMove) {
+        if (opponentMove == DEFECT) oppDefected = true;
+    }
+
+    @Override
+    public int state() {
+        return oppDefected ? 1 : 0;
+    }
+}
@@ -6,6 +6,7 @@ import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.domain.DFService;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.Property;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 import jade.domain.FIPAException;
 import jade.lang.acl.ACLMessage;
@@ -17,10 +18,14 @@ public class Spiteful_agent extends Agent {
     private int myId, opponentId;
     private int N, R;
     private ACLMessage msg;
-    private String opponentMove;
-    private boolean oppDefected = false;
+    private Trace trace;
+    private final GameCodec codec = new GameCodec();
+    private boolean binary;
+    private final Strategy strategy = new SpitefulStrategy();
+    private final LatencyHistogram decisionTime = Metrics.histogram("nextMove");
 
     protected void setup() {
+        trace = Trace.forAgent(this);
         state = State.s0NoConfig;
 
         //Register in the yellow pages as a player
@@ -29,6 +34,9 @@ public class Spiteful_agent extends Agent {
         ServiceDescription sd = new ServiceDescription();
         sd.setType("Player");
         sd.setName("Game");
+        sd.addProperties(new Property("strategy", strategy.getClass().getName()));
+        if (strategy.isDeterministic()) sd.addProperties(new Property("batch", "true"));
+        sd.addProperties(new Property("encoding", GameCodec.ENCODING));
         dfd.addServices(sd);
         try {
             DFService.register(this, dfd);
@@ -36,7 +44,7 @@ public class Spiteful_agent extends Agent {
             fe.printStackTrace();
         }
         addBehaviour(new Play());
-        System.out.println("RandomAgent " + getAID().getName() + " is ready.");
+        trace.info("{} is ready", getClass().getSimpleName());
 
     }
 
@@ -47,7 +55,7 @@ public class Spiteful_agent extends Agent {
         } catch (FIPAException e) {
             e.printStackTrace();
         }
-        System.out.println("RandomPlayer " + getAID().getName() + " terminating.");
+        trace.info("{} terminating", getClass().getSimpleName());
     }
 
     private enum State {
@@ -58,10 +66,11 @@ public class Spiteful_agent extends Agent {
         
         @Override
         public void action() {
-            System.out.println(getAID().getName() + ":" + state.name());
+            trace.debug("{}", state);
             msg = blockingReceive();
             if (msg != null) {
-                System.out.println(getAID().getName() + " received " + msg.getContent() + " from " + msg.getSender().getName()); //DELETEME
+                codec.decode(msg);
+                trace.debug("received {} from {}", codec.binary ? codec : msg.getContent(), msg.getSender().getName());
                 //-------- Agent logic
                 switch (state) {
                     case s0NoConfig:
@@ -72,14 +81,14 @@ public class Spiteful_agent extends Agent {
                             try {
                                 parametersUpdated = validateSetupMessage(msg);
                             } catch (NumberFormatException e) {
-                                System.out.println(getAID().getName() + ":" + state.name() + " - Bad message");
+                                trace.error("{} - Bad message", state);
                             }
                             if (parametersUpdated) state = State.s1AwaitingGame;
                             // TODO: add else if for removed
                         } else if (msg.getPerformative() == ACLMessage.INFORM && msg.getContent().startsWith("Delete")) {
                         	doDelete();
                         } else {
-                            System.out.println(getAID().getName() + ":" + state.name() + " - Unexpected message");
+                            trace.error("{} - Unexpected message", state);
                         }
                         break;
                     case s1AwaitingGame:
@@ -87,27 +96,27 @@ public class Spiteful_agent extends Agent {
                         //If INFORM Id#_#_,_,_,_ PROCESS SETUP --> stay at s1
                         //Else ERROR
                         //TODO I probably should check if the new game message comes from the main agent who sent the parameters
-                        oppDefected = false;
                     	if (msg.getPerformative() == ACLMessage.INFORM) {
-                            if (msg.getContent().startsWith("Id#")) { //Game settings updated
+                            if (codec.type == GameCodec.NEW_GAME) {
+                                if (validateNewGame()) {
+                                    strategy.newGame();
+                                    // answer in the encoding the main agent chose for us
+                                    binary = codec.binary;
+                                    state = State.s2Round;
+                                }
+                            } else if (msg.getContent().startsWith("Id#")) { //Game settings updated
                                 try {
                                     validateSetupMessage(msg);
                                 } catch (NumberFormatException e) {
-                                    System.out.println(getAID().getName() + ":" + state.name() + " - Bad message");
+                                    trace.error("{} - Bad message", state);
                                 }
                             } else if (msg.getContent().startsWith("NewGame#")) {
-                                boolean gameStarted = false;
-                                try {
-                                    gameStarted = validateNewGame(msg.getContent());
-                                } catch (NumberFormatException e) {
-                                    System.out.println(getAID().getName() + ":" + state.name() + " - Bad message");
-                                }
-                                if (gameStarted) state = State.s2Round;
+                                trace.error("{} - Bad message", state);
                             } else if (msg.getContent().startsWith("Delete")) {
                             	doDelete();
                             } 
                         } else {
-                            System.out.println(getAID().getName() + ":" + state.name() + " - Unexpected message");
+                            trace.error("{} - Unexpected message", state);
                         }
                         break;
                     case s2Round:
@@ -116,60 +125,84 @@ public class Spiteful_agent extends Agent {
                         //If INFORM ENDGAME go to state 1
                         //Else error
                         if (msg.getPerformative() == ACLMessage.REQUEST /*&& msg.getContent().startsWith("Position")*/) {
-                            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-                            msg.addReceiver(mainAgent);
-                            msg.setContent("Position#" + nextMove());
-                            System.out.println(getAID().getName() + " sent " + msg.getContent());
-                            send(msg);
+                            // reply keeps the conversation id, so the main agent can match both players' moves
+                            ACLMessage reply = msg.createReply();
+                            reply.setPerformative(ACLMessage.INFORM);
+                            DecisionEvent decision = new DecisionEvent();
+                            decision.begin();
+                            long start = System.nanoTime();
+                            int move = strategy.nextMove();
+                            decisionTime.recordSince(start);
+                            decision.end();
+                            if (decision.shouldCommit()) {
+                                decision.agent = getLocalName();
+                                decision.player = myId;
+                                decision.opponent = opponentId;
+                                decision.move = Strategy.moveName(move);
+                                decision.commit();
+                            }
+                            if (binary) {
+                                reply.setByteSequenceContent(GameCodec.encodePosition(move));
+                            } else {
+                                reply.setContent("Position#" + Strategy.moveName(move));
+                            }
+                            trace.debug("sent Position#{}", Strategy.moveName(move));
+                            send(reply);
                             state = State.s3AwaitingResult;
+                        } else if (codec.type == GameCodec.NEW_GAME) {
+                            // Next round of the current game, nothing to do
                         } else if (msg.getPerformative() == ACLMessage.INFORM && msg.getContent().startsWith("Changed#")) {
                             // Process changed message, in this case nothing
+                        } else if (msg.getPerformative() == ACLMessage.INFORM && msg.getContent().startsWith("Batch#")) {
+                            // The main agent played the whole game with a replica of our strategy
+                            replayBatch(msg.getContent());
                         } else if (msg.getPerformative() == ACLMessage.INFORM && msg.getContent().startsWith("GameOver")) {
-                        	System.out.print("Game over");
+                        	trace.info("Game over");
                             state = State.s1AwaitingGame;
                         } else if (msg.getPerformative() == ACLMessage.INFORM && msg.getContent().startsWith("Delete")) {
                         	doDelete();
                         } else {
-                            System.out.println(getAID().getName() + ":" + state.name() + " - Unexpected message:" + msg.getContent());
+                            trace.error("{} - Unexpected message: {}", state, codec.binary ? codec : msg.getContent());
                         }
                         break;
                     case s3AwaitingResult:
                         //If INFORM RESULTS --> go to state 2
                         //Else error
-                        if (msg.getPerformative() == ACLMessage.INFORM && msg.getContent().startsWith("Results#")) {
+                        if (msg.getPerformative() == ACLMessage.INFORM && codec.type == GameCodec.RESULTS) {
                             //Process results
-                        	saveOpponentMove(msg);
+                        	saveOpponentMove();
                             state = State.s2Round;
                         } else if (msg.getPerformative() == ACLMessage.INFORM && msg.getContent().startsWith("Delete")) {
                         	doDelete();
                         } else {
-                            System.out.println(getAID().getName() + ":" + state.name() + " - Unexpected message");
+                            trace.error("{} - Unexpected message", state);
                         }
                         break;
                 }
             }
         }
         
-        private void saveOpponentMove(ACLMessage msg) {
-			String[] content = msg.getContent().split("#");
-			String[] ids = content[1].split(",");
-			int id1 = Integer.valueOf(ids[0]);
-			int id2 = Integer.valueOf(ids[1]);
-			if (id1==myId){
-				opponentMove = content[2].split(",")[1];
-			} else if(id2 == myId) {
-				opponentMove = content[2].split(",")[0];
+        private void saveOpponentMove() {
+			if (codec.id1 == myId){
+				strategy.saveOpponentMove(codec.move1, codec.move2);
+			} else if(codec.id2 == myId) {
+				strategy.saveOpponentMove(codec.move2, codec.move1);
 			}
-			if (opponentMove.equals("D")) oppDefected = true;
 		}
-        
-        private String nextMove() {
-        	if (oppDefected) {
-        		return "D";
-        	}
-        	else {
-        		return "C";
-        	}
+
+        /**
+         * Processes the contents of the Batch message, Batch#id1,id2#moves1,moves2
+         * @param msgContent Content of the message
+         */
+        private void replayBatch(String msgContent) {
+            String[] content = msgContent.split("#");
+            String[] ids = content[1].split(",");
+            String[] moves = content[2].split(",");
+            if (Integer.parseInt(ids[0]) == myId) {
+                strategy.replay(moves[0], moves[1]);
+            } else if (Integer.parseInt(ids[1]) == myId) {
+                strategy.replay(moves[1], moves[0]);
+            }
         }
 
         /**
@@ -201,19 +234,12 @@ public class Spiteful_agent extends Agent {
         }
 
         /**
-         * Processes the contents of the New Game message
-         * @param msgContent Content of the message
+         * Processes the New Game message decoded by the codec
          * @return true if the message is valid
          */
-        public boolean validateNewGame(String msgContent) {
-            int msgId0, msgId1;
-            String[] contentSplit = msgContent.split("#");
-            if (contentSplit.length != 2) return false;
-            if (!contentSplit[0].equals("NewGame")) return false;
-            String[] idSplit = contentSplit[1].split(",");
-            if (idSplit.length != 2) return false;
-            msgId0 = Integer.parseInt(idSplit[0]);
-            msgId1 = Integer.parseInt(idSplit[1]);
+        public boolean validateNewGame() {
+            int msgId0 = codec.id1;
+            int msgId1 = codec.id2;
             if (myId == msgId0) {
                 opponentId = msgId1;
                 return true;
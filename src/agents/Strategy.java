@@ -0,0 +1,99 @@
+import java.util.SplittableRandom;
+
+/**
+ * Decision logic of a player, independent of how the moves reach the main agent.
+ * The JADE agents are thin adapters over a strategy, and the main agent can play
+ * the same strategies in-process through {@link TournamentEngine}.
+ *
+ * Moves are encoded as {@link #COOPERATE} and {@link #DEFECT}.
+ */
+public interface Strategy {
+
+    int COOPERATE = 0;
+    int DEFECT = 1;
+
+    /**
+     * Resets the per-game state, called before the first round of every game
+     */
+    void newGame();
+
+    /**
+     * @return move for the current round
+     */
+    int nextMove();
+
+    /**
+     * Informs the strategy about the moves played in the last round
+     *
+     * @param myMove move this player played
+     * @param opponentMove move the opponent played
+     */
+    void saveOpponentMove(int myMove, int opponentMove);
+
+    /**
+     * Gives the strategy its source of randomness, so a game can be reproduced
+     * from its seed. Deterministic strategies ignore it.
+     */
+    default void setRandom(SplittableRandom random) {
+    }
+
+    /**
+     * Describes a memory-one strategy, whose move depends only on the outcome of
+     * the last round, so games against it can be computed instead of played
+     *
+     * @param p receives the probabilities to cooperate after CC, CD, DC and DD
+     *          (this player's move first) and, at index 4, in the first round
+     * @return false if the strategy is not memory-one, p is then unspecified
+     */
+    default boolean memoryOne(double[] p) {
+        return false;
+    }
+
+    /**
+     * @return name that tells this strategy apart from every other one, strategies
+     * configured by parameters include them
+     */
+    default String identity() {
+        return getClass().getName();
+    }
+
+    /**
+     * Encodes everything the next moves of a deterministic strategy depend on.
+     * Two rounds where both strategies are in the same state are followed by the
+     * same moves, so the engine can detect a cycle and extrapolate the game.
+     *
+     * @return non-negative state code, or -1 when the strategy cannot tell
+     */
+    default int state() {
+        return -1;
+    }
+
+    /**
+     * @return true if the moves depend only on the game history, so the main
+     * agent can play whole games with a local replica of this strategy
+     */
+    default boolean isDeterministic() {
+        return true;
+    }
+
+    /**
+     * Feeds a game played by a replica of this strategy, as if it had been played round by round
+     *
+     * @param myMoves moves of this player, one C or D per round
+     * @param opponentMoves moves of the opponent, one C or D per round
+     */
+    default void replay(CharSequence myMoves, CharSequence opponentMoves) {
+        for (int r = 0; r < myMoves.length(); r++) {
+            nextMove();
+            saveOpponentMove(myMoves.charAt(r) == 'D' ? DEFECT : COOPERATE, opponentMoves.charAt(r) == 'D' ? DEFECT : COOPERATE);
+        }
+    }
+
+    static int parseMove(String move) {
+        return move.trim().equals("D") ? DEFECT : COOPERATE;
+    }
+
+    static String moveName(int move) {
+        return move == DEFECT ? "D" : "C";
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * Cooperates in the first round, afterwards repeats the opponent's previous move
+ */
+public class TFTStrategy extends MemoryStrategy {
+
+    public TFTStrategy() {
+        super("C", "CDCD");
+    }
+}
@@ -0,0 +1,101 @@
+import jade.core.Agent;
+
+/**
+ * Leveled tracing for the player agents.
+ *
+ * The level of an agent is taken from its first start argument (e.g.
+ * tftagent:TFT_agent(DEBUG)), then from the system property ipd.trace.localName,
+ * then from ipd.trace, and defaults to INFO. With ipd.trace.sample=N only one in
+ * N INFO and DEBUG lines is printed, errors are always printed.
+ *
+ * Messages use {} placeholders and are only formatted when the line is printed,
+ * so arguments should be values that are cheap to pass, with the expensive work
+ * left to their toString().
+ */
+public final class Trace {
+
+    public enum Level {
+        OFF, ERROR, INFO, DEBUG
+    }
+
+    private final String name;
+    private final Level level;
+    private final int sampleRate;
+    private int counter;
+
+    public Trace(String name, Level level, int sampleRate) {
+        this.name = name;
+        this.level = level;
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    public static Trace forAgent(Agent agent) {
+        Level level = Level.INFO;
+        String configured = System.getProperty("ipd.trace." + agent.getLocalName(), System.getProperty("ipd.trace"));
+        Object[] args = agent.getArguments();
+        if (args != null && args.length > 0) configured = String.valueOf(args[0]);
+        if (configured != null) {
+            try {
+                level = Level.valueOf(configured.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println(agent.getName() + ": unknown trace level " + configured);
+            }
+        }
+        return new Trace(agent.getName(), level, Integer.getInteger("ipd.trace.sample", 1));
+    }
+
+    public boolean isEnabled(Level l) {
+        return l != Level.OFF && l.ordinal() <= level.ordinal();
+    }
+
+    public void error(String format) {
+        if (isEnabled(Level.ERROR)) print(format, null, null, null);
+    }
+
+    public void error(String format, Object a1) {
+        if (isEnabled(Level.ERROR)) print(format, a1, null, null);
+    }
+
+    public void error(String format, Object a1, Object a2) {
+        if (isEnabled(Level.ERROR)) print(format, a1, a2, null);
+    }
+
+    public void info(String format) {
+        if (sampled(Level.INFO)) print(format, null, null, null);
+    }
+
+    public void info(String format, Object a1) {
+        if (sampled(Level.INFO)) print(format, a1, null, null);
+    }
+
+    public void debug(String format, Object a1) {
+        if (sampled(Level.DEBUG)) print(format, a1, null, null);
+    }
+
+    public void debug(String format, Object a1, Object a2) {
+        if (sampled(Level.DEBUG)) print(format, a1, a2, null);
+    }
+
+    public void debug(String format, Object a1, Object a2, Object a3) {
+        if (sampled(Level.DEBUG)) print(format, a1, a2, a3);
+    }
+
+    private boolean sampled(Level l) {
+        // agents trace from their own thread only, so the counter needs no synchronization
+        return isEnabled(l) && (sampleRate == 1 || counter++ % sampleRate == 0);
+    }
+
+    private void print(String format, Object a1, Object a2, Object a3) {
+        StringBuilder line = new StringBuilder(name.length() + format.length() + 32).append(name).append(": ");
+        int arg = 0;
+        int from = 0;
+        int at;
+        while ((at = format.indexOf("{}", from)) >= 0) {
+            line.append(format, from, at).append(arg == 0 ? a1 : arg == 1 ? a2 : a3);
+            arg++;
+            from = at + 2;
+        }
+        line.append(format, from, format.length());
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,121 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointTest {
+
+    private static final int PLAYERS = 13, R = 150;
+    private static final double NOISE = 0.05;
+
+    @TempDir
+    File dir;
+
+    /**
+     * Plays a whole tournament, writing a checkpoint once the given number of games is played
+     */
+    private static TournamentEngine playWithCheckpoint(File file, int parallelism, int checkpointGame) {
+        TournamentEngine engine = TestPlayers.engine(PLAYERS, R, NOISE, 42);
+        engine.setParallelism(parallelism);
+        engine.setGameListener((player1, player2, result, gamesPlayed) -> {
+            if (gamesPlayed != checkpointGame) return;
+            try {
+                Checkpoint.write(file, engine.getSeed(), R, NOISE, PayoffMatrix.PRISONERS_DILEMMA, gamesPlayed, engine.getPlayers());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        engine.play();
+        return engine;
+    }
+
+    /**
+     * Plays the rest of the tournament of a checkpoint with new players, as after a restart
+     */
+    private static TournamentEngine resume(File file, int parallelism) throws IOException {
+        TournamentEngine engine = TestPlayers.engine(PLAYERS, R, NOISE, 0);
+        engine.setParallelism(parallelism);
+        Checkpoint checkpoint = Checkpoint.read(file);
+        assertTrue(checkpoint.matches(engine.getPlayers(), R, NOISE, PayoffMatrix.PRISONERS_DILEMMA));
+        checkpoint.restore(engine.getPlayers());
+        engine.setSeed(checkpoint.getSeed());
+        engine.setFirstGame(checkpoint.getNextGame());
+        engine.play();
+        return engine;
+    }
+
+    @Test
+    void resumeEqualsUninterruptedRun() throws IOException {
+        int games = PLAYERS * (PLAYERS - 1) / 2;
+        for (int parallelism : new int[] {1, 3}) {
+            for (int checkpointGame : new int[] {1, 6, 17, games / 2, games - 1}) {
+                File file = new File(dir, "checkpoint" + parallelism + "_" + checkpointGame);
+                TournamentEngine uninterrupted = playWithCheckpoint(file, parallelism, checkpointGame);
+                assertEquals(checkpointGame, Checkpoint.read(file).getNextGame());
+                TestPlayers.assertSameStats(uninterrupted.getPlayers(), resume(file, parallelism).getPlayers());
+            }
+        }
+    }
+
+    @Test
+    void restoresEveryStatistic() throws IOException {
+        TournamentEngine engine = TestPlayers.engine(5, R, NOISE, 42);
+        engine.play();
+        List<MainAgent.PlayerInformation> players = engine.getPlayers();
+        players.get(2).moveRequests = 1200;
+        players.get(2).timeouts = 130;
+        players.get(2).flaggedSlow = true;
+        File file = new File(dir, "checkpoint");
+        Checkpoint.write(file, 99, R, NOISE, PayoffMatrix.PRISONERS_DILEMMA, 10, players);
+        assertFalse(new File(dir, "checkpoint.tmp").exists());
+
+        List<MainAgent.PlayerInformation> restored = TestPlayers.create(5);
+        Checkpoint checkpoint = Checkpoint.read(file);
+        checkpoint.restore(restored);
+        // the final payoffs are computed again once the tournament ends
+        for (MainAgent.PlayerInformation player : restored) player.calcFinalPayoff();
+        assertEquals(99, checkpoint.getSeed());
+        assertEquals(10, checkpoint.getNextGame());
+        TestPlayers.assertSameStats(players, restored);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(players.get(i).moveRequests, restored.get(i).moveRequests);
+            assertEquals(players.get(i).timeouts, restored.get(i).timeouts);
+            assertEquals(players.get(i).flaggedSlow, restored.get(i).flaggedSlow);
+            assertEquals(players.get(i).avgPayoff.getMin(), restored.get(i).avgPayoff.getMin(), 0);
+            assertEquals(players.get(i).avgPayoff.getMax(), restored.get(i).avgPayoff.getMax(), 0);
+        }
+    }
+
+    @Test
+    void matchesOnlyTheSameTournament() throws IOException {
+        List<MainAgent.PlayerInformation> players = TestPlayers.create(4);
+        File file = new File(dir, "checkpoint");
+        Checkpoint.write(file, 1, R, NOISE, PayoffMatrix.PRISONERS_DILEMMA, 0, players);
+        Checkpoint checkpoint = Checkpoint.read(file);
+
+        assertTrue(checkpoint.matches(players, R, NOISE, PayoffMatrix.PRISONERS_DILEMMA));
+        assertFalse(checkpoint.matches(players, R + 1, NOISE, PayoffMatrix.PRISONERS_DILEMMA));
+        assertFalse(checkpoint.matches(players, R, 0, PayoffMatrix.PRISONERS_DILEMMA));
+        assertFalse(checkpoint.matches(players, R, NOISE, new PayoffMatrix(5, 3, 1, 1)));
+        assertFalse(checkpoint.matches(TestPlayers.create(5), R, NOISE, PayoffMatrix.PRISONERS_DILEMMA));
+        Collections.swap(players, 0, 1);
+        assertFalse(checkpoint.matches(players, R, NOISE, PayoffMatrix.PRISONERS_DILEMMA));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        File file = new File(dir, "other");
+        Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> Checkpoint.read(file));
+    }
+}
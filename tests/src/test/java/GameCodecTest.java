@@ -0,0 +1,114 @@
+import jade.lang.acl.ACLMessage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameCodecTest {
+
+    private final GameCodec codec = new GameCodec();
+
+    private static ACLMessage binary(byte[] content) {
+        ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+        msg.setByteSequenceContent(content);
+        return msg;
+    }
+
+    private static ACLMessage text(String content) {
+        ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+        msg.setContent(content);
+        return msg;
+    }
+
+    @Test
+    void binaryMessagesRoundTrip() {
+        assertEquals(GameCodec.NEW_GAME, codec.decode(binary(GameCodec.encodeNewGame(3, 1 << 20))));
+        assertTrue(codec.binary);
+        assertEquals(3, codec.id1);
+        assertEquals(1 << 20, codec.id2);
+
+        for (int move : new int[] {Strategy.COOPERATE, Strategy.DEFECT}) {
+            assertEquals(GameCodec.POSITION, codec.decode(binary(GameCodec.encodePosition(move))));
+            assertEquals(move, codec.move1);
+        }
+
+        for (int outcome = 0; outcome < 4; outcome++) {
+            int move1 = GameResult.move1(outcome), move2 = GameResult.move2(outcome);
+            assertEquals(GameCodec.RESULTS, codec.decode(binary(GameCodec.encodeResults(7, 12, move1, move2, -5, Integer.MAX_VALUE))));
+            assertEquals(7, codec.id1);
+            assertEquals(12, codec.id2);
+            assertEquals(move1, codec.move1);
+            assertEquals(move2, codec.move2);
+            assertEquals(-5, codec.payoff1);
+            assertEquals(Integer.MAX_VALUE, codec.payoff2);
+        }
+    }
+
+    @Test
+    void textMessagesRoundTrip() {
+        assertEquals(GameCodec.NEW_GAME, codec.decode(text(GameCodec.newGameText(4, 9))));
+        assertFalse(codec.binary);
+        assertEquals(4, codec.id1);
+        assertEquals(9, codec.id2);
+
+        assertEquals(GameCodec.POSITION, codec.decode(text("Position#D")));
+        assertEquals(Strategy.DEFECT, codec.move1);
+        assertEquals(GameCodec.POSITION, codec.decode(text("Position# C ")));
+        assertEquals(Strategy.COOPERATE, codec.move1);
+
+        String results = GameCodec.resultsText(2, 5, Strategy.DEFECT, Strategy.COOPERATE, 5, -1);
+        assertEquals(GameCodec.RESULTS, codec.decode(text(results)));
+        assertEquals(2, codec.id1);
+        assertEquals(5, codec.id2);
+        assertEquals(Strategy.DEFECT, codec.move1);
+        assertEquals(Strategy.COOPERATE, codec.move2);
+        assertEquals(5, codec.payoff1);
+        assertEquals(-1, codec.payoff2);
+        assertEquals(results, codec.describe());
+    }
+
+    @Test
+    void textResultsMayOmitThePayoffs() {
+        assertEquals(GameCodec.RESULTS, codec.decode(text("Results#0,1#C,D")));
+        assertEquals(Strategy.COOPERATE, codec.move1);
+        assertEquals(Strategy.DEFECT, codec.move2);
+        assertEquals(0, codec.payoff1);
+        assertEquals(0, codec.payoff2);
+    }
+
+    @Test
+    void rejectsBadMoves() {
+        assertEquals(GameCodec.NONE, codec.decode(binary(new byte[] {GameCodec.POSITION, 2})));
+        assertEquals(GameCodec.NONE, codec.decode(binary(new byte[] {GameCodec.POSITION, -1})));
+        byte[] results = GameCodec.encodeResults(0, 1, 1, 1, 1, 1);
+        results[9] = 4;
+        assertEquals(GameCodec.NONE, codec.decode(binary(results)));
+
+        assertEquals(GameCodec.NONE, codec.decode(text("Position#X")));
+        assertEquals(GameCodec.NONE, codec.decode(text("Position#")));
+        assertEquals(GameCodec.NONE, codec.decode(text("Results#0,1#C,X#1,1")));
+        assertEquals(GameCodec.NONE, codec.decode(text("Results#0,1#c,D#1,1")));
+    }
+
+    @Test
+    void rejectsMalformedMessages() {
+        assertEquals(GameCodec.NONE, codec.decode(binary(new byte[] {GameCodec.NEW_GAME, 0, 0, 0, 1})));
+        assertEquals(GameCodec.NONE, codec.decode(binary(new byte[] {GameCodec.POSITION, 0, 0})));
+        assertEquals(GameCodec.NONE, codec.decode(binary(new byte[] {9, 0})));
+        assertEquals(GameCodec.NONE, codec.decode(binary(new byte[] {GameCodec.RESULTS})));
+
+        assertEquals(GameCodec.NONE, codec.decode(text("NewGame#1")));
+        assertEquals(GameCodec.NONE, codec.decode(text("NewGame#a,b")));
+        assertEquals(GameCodec.NONE, codec.decode(text("Results#1,2")));
+        assertEquals(GameCodec.NONE, codec.decode(text("Hello")));
+        assertEquals(GameCodec.NONE, codec.decode(new ACLMessage(ACLMessage.INFORM)));
+    }
+
+    @Test
+    void badMessageClearsTheLastType() {
+        assertEquals(GameCodec.POSITION, codec.decode(text("Position#C")));
+        assertEquals(GameCodec.NONE, codec.decode(text("Position#Q")));
+        assertEquals("", codec.describe());
+    }
+}
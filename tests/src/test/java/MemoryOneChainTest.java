@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryOneChainTest {
+
+    private static final String[] TABLES = {"CCCC", "DDDD", "CDCD", "CDDC", "DCDC", "CCDD", "DCCD"};
+
+    private static double[] expected(Strategy strategy1, Strategy strategy2, double noise, int rounds) {
+        double[] p = new double[5], q = new double[5], counts = new double[4];
+        assertTrue(strategy1.memoryOne(p) && strategy2.memoryOne(q));
+        MemoryOneChain.expectedCounts(p, q, noise, rounds, counts);
+        return counts;
+    }
+
+    @Test
+    void expectationEqualsPlayWithoutNoise() {
+        for (String table1 : TABLES) {
+            for (String table2 : TABLES) {
+                for (String first : new String[] {"C", "D"}) {
+                    Strategy strategy1 = new MemoryStrategy(first, table1), strategy2 = new MemoryStrategy("C", table2);
+                    double[] counts = expected(strategy1, strategy2, 0, 101);
+                    GameResult played = TournamentEngine.playGame(strategy1, strategy2, 101);
+                    for (int outcome = 0; outcome < 4; outcome++) {
+                        assertEquals(played.getCount(outcome), counts[outcome], 1e-9, strategy1 + " against " + strategy2);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertMatchesSimulation(Supplier<Strategy> strategy1, Supplier<Strategy> strategy2, double noise) {
+        int rounds = 50, games = 40000;
+        double[] counts = expected(strategy1.get(), strategy2.get(), noise, rounds);
+        double[] simulated = new double[4];
+        SplittableRandom random = new SplittableRandom(5);
+        for (int g = 0; g < games; g++) {
+            Strategy s1 = strategy1.get(), s2 = strategy2.get();
+            s1.setRandom(random.split());
+            s2.setRandom(random.split());
+            GameResult result = TournamentEngine.playGame(s1, s2, rounds, noise, random, null);
+            for (int outcome = 0; outcome < 4; outcome++) simulated[outcome] += result.getCount(outcome);
+        }
+        for (int outcome = 0; outcome < 4; outcome++) {
+            // the standard error of the mean count is below 0.05 rounds
+            assertEquals(counts[outcome], simulated[outcome] / games, 0.25, "outcome " + outcome);
+        }
+    }
+
+    @Test
+    void expectationMatchesSimulationWithNoise() {
+        assertMatchesSimulation(TFTStrategy::new, PavlovStrategy::new, 0.05);
+        assertMatchesSimulation(TFTStrategy::new, TFTStrategy::new, 0.1);
+        assertMatchesSimulation(() -> new MemoryStrategy("D", "CDDC"), TFTStrategy::new, 0.02);
+    }
+
+    @Test
+    void expectationMatchesSimulationOfRandomPlayers() {
+        assertMatchesSimulation(RandomStrategy::new, PavlovStrategy::new, 0);
+        assertMatchesSimulation(TFTStrategy::new, RandomStrategy::new, 0.05);
+    }
+
+    @Test
+    void longGamesCountEveryRound() {
+        double[] counts = expected(new TFTStrategy(), new PavlovStrategy(), 0.01, 1000000);
+        assertEquals(1000000, counts[0] + counts[1] + counts[2] + counts[3], 1e-6);
+        // the stationary part of a long game dominates, so its share equals that of a game ten times shorter
+        double[] shorter = expected(new TFTStrategy(), new PavlovStrategy(), 0.01, 100000);
+        for (int outcome = 0; outcome < 4; outcome++) {
+            assertEquals(shorter[outcome] * 10, counts[outcome], 1e-3 * counts[outcome] + 1);
+        }
+    }
+
+    @Test
+    void engineComputesMemoryOneAverages() {
+        double[] averages = new double[2];
+        assertTrue(TournamentEngine.averagePayoffs(new TFTStrategy(), new MemoryStrategy("D", "DDDD"), 100, 0, null,
+                PayoffMatrix.PRISONERS_DILEMMA, averages));
+        GameResult played = TournamentEngine.playGame(new TFTStrategy(), new MemoryStrategy("D", "DDDD"), 100);
+        assertEquals(played.averagePayoff1(PayoffMatrix.PRISONERS_DILEMMA), averages[0], 1e-9);
+        assertEquals(played.averagePayoff2(PayoffMatrix.PRISONERS_DILEMMA), averages[1], 1e-9);
+    }
+}
@@ -0,0 +1,123 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MoveLogTest {
+
+    private static final int PLAYERS = 11, R = 203;
+
+    @TempDir
+    File dir;
+
+    private static TournamentEngine playLogged(File file, double noise, int parallelism) throws IOException {
+        TournamentEngine engine = TestPlayers.engine(PLAYERS, R, noise, 42);
+        engine.setParallelism(parallelism);
+        try (MoveLog moveLog = MoveLog.open(file, engine.getPlayers(), false)) {
+            engine.setMoveLog(moveLog);
+            engine.play();
+        }
+        return engine;
+    }
+
+    @Test
+    void rebuildEqualsLiveResults() throws IOException {
+        for (double noise : new double[] {0, 0.05}) {
+            for (int parallelism : new int[] {1, 4}) {
+                File file = new File(dir, "moves" + noise + "_" + parallelism);
+                TournamentEngine engine = playLogged(file, noise, parallelism);
+                try (MoveLogReader reader = new MoveLogReader(file)) {
+                    assertEquals(PLAYERS, reader.getPlayers());
+                    assertEquals(PLAYERS * (PLAYERS - 1) / 2, reader.getGames());
+                    TestPlayers.assertSameStats(engine.getPlayers(), reader.rebuild(PayoffMatrix.PRISONERS_DILEMMA));
+                }
+            }
+        }
+    }
+
+    @Test
+    void loggedGamesEqualTheirPairings() throws IOException {
+        File file = new File(dir, "moves");
+        playLogged(file, 0.05, 1);
+        try (MoveLogReader reader = new MoveLogReader(file)) {
+            TournamentEngine.Schedule schedule = new TournamentEngine.Schedule(PLAYERS, 42, 0);
+            for (TournamentEngine.Pairing pairing = schedule.next(); pairing != null; pairing = schedule.next()) {
+                assertEquals(pairing.first, reader.getPlayer1(pairing.game));
+                assertEquals(pairing.second, reader.getPlayer2(pairing.game));
+                GameResult played = TournamentEngine.playPairing(TestPlayers.strategy(pairing.first).get(),
+                        TestPlayers.strategy(pairing.second).get(), R, 0.05, pairing.seed);
+                GameResult logged = reader.getResult(pairing.game);
+                assertEquals(played.getRounds(), reader.getRounds(pairing.game));
+                for (int outcome = 0; outcome < 4; outcome++) {
+                    assertEquals(played.getCount(outcome), logged.getCount(outcome), "game " + pairing.game);
+                }
+            }
+        }
+    }
+
+    @Test
+    void replayFollowsTheLoggedMoves() throws IOException {
+        File file = new File(dir, "moves");
+        playLogged(file, 0, 1);
+        try (MoveLogReader reader = new MoveLogReader(file)) {
+            for (int game = 0; game < reader.getGames(); game++) {
+                int player1 = reader.getPlayer1(game), player2 = reader.getPlayer2(game);
+                // random players make their own choices, the others must repeat the log
+                if (player1 % 7 == 3 || player2 % 7 == 3) continue;
+                assertEquals(0, reader.replay(game, TestPlayers.strategy(player1).get(), TestPlayers.strategy(player2).get()));
+            }
+        }
+    }
+
+    @Test
+    void outcomesRoundTrip() throws IOException {
+        File file = new File(dir, "moves");
+        List<MainAgent.PlayerInformation> players = TestPlayers.create(3);
+        byte[][] games = {{0, 1, 2, 3, 3}, {}, {2, 2, 1, 0, 1, 3, 0, 2, 1}};
+        try (MoveLog moveLog = MoveLog.open(file, players, false)) {
+            // games may arrive in any order
+            moveLog.append(2, games[2], games[2].length);
+            moveLog.append(0, games[0], games[0].length);
+        }
+        try (MoveLogReader reader = new MoveLogReader(file)) {
+            assertEquals("player1@test", reader.getName(1));
+            assertEquals(-1, reader.getRounds(1));
+            assertNull(reader.getResult(1));
+            for (int game : new int[] {0, 2}) {
+                byte[] outcomes = new byte[reader.getRounds(game)];
+                for (int r = 0; r < outcomes.length; r++) outcomes[r] = (byte) reader.getOutcome(game, r);
+                assertArrayEquals(games[game], outcomes);
+            }
+        }
+    }
+
+    @Test
+    void appendKeepsTheLoggedGames() throws IOException {
+        File file = new File(dir, "moves");
+        List<MainAgent.PlayerInformation> players = TestPlayers.create(3);
+        try (MoveLog moveLog = MoveLog.open(file, players, false)) {
+            moveLog.append(0, new byte[] {3, 3, 0}, 3);
+        }
+        try (MoveLog moveLog = MoveLog.open(file, players, true)) {
+            moveLog.append(1, new byte[] {1, 2}, 2);
+        }
+        try (MoveLogReader reader = new MoveLogReader(file)) {
+            assertEquals(3, reader.getRounds(0));
+            assertEquals(2, reader.getResult(0).getCount(GameResult.DD));
+            assertEquals(2, reader.getRounds(1));
+            assertEquals(GameResult.DC, reader.getOutcome(1, 1));
+        }
+        // another roster starts a new log
+        MoveLog.open(file, TestPlayers.create(4), true).close();
+        try (MoveLogReader reader = new MoveLogReader(file)) {
+            assertEquals(4, reader.getPlayers());
+            assertEquals(-1, reader.getRounds(0));
+        }
+    }
+}
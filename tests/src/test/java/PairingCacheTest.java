@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PairingCacheTest {
+
+    @TempDir
+    File dir;
+
+    private static TournamentEngine play(double noise, PairingCache cache) {
+        TournamentEngine engine = TestPlayers.engine(15, 200, noise, 42);
+        engine.setCache(cache);
+        engine.play();
+        return engine;
+    }
+
+    @Test
+    void cachedEqualsUncached() {
+        for (double noise : new double[] {0, 0.05}) {
+            TournamentEngine uncached = play(noise, null);
+            PairingCache cache = new PairingCache(1000);
+            TestPlayers.assertSameStats(uncached.getPlayers(), play(noise, cache).getPlayers());
+            long misses = cache.getMisses();
+            TestPlayers.assertSameStats(uncached.getPlayers(), play(noise, cache).getPlayers());
+            assertEquals(misses, cache.getMisses(), "the second tournament plays no pairing");
+        }
+    }
+
+    @Test
+    void fileOutlivesTheCache() throws IOException {
+        File path = new File(dir, "pairings");
+        TournamentEngine uncached = play(0.05, null);
+        try (PairingCache cache = new PairingCache(1000, path, 1000)) {
+            play(0.05, cache);
+        }
+        try (PairingCache cache = new PairingCache(1, path, 1000)) {
+            TestPlayers.assertSameStats(uncached.getPlayers(), play(0.05, cache).getPlayers());
+            assertEquals(0, cache.getMisses());
+        }
+    }
+
+    private static GameResult result(int k) {
+        GameResult result = new GameResult();
+        result.recordRepeated(GameResult.CC, k);
+        result.recordRepeated(GameResult.DD, 1);
+        return result;
+    }
+
+    @Test
+    void fileKeepsTwoGenerations() throws IOException {
+        File path = new File(dir, "pairings");
+        try (PairingCache cache = new PairingCache(1, path, 10)) {
+            for (int k = 0; k < 30; k++) cache.put("pairing" + k, result(k));
+        }
+        assertTrue(new File(dir, "pairings.old").isFile());
+        try (PairingCache cache = new PairingCache(1, path, 10)) {
+            for (int k = 0; k < 10; k++) assertNull(cache.get("pairing" + k), "pairing" + k);
+            for (int k = 20; k < 30; k++) assertResult(k, cache.get("pairing" + k));
+            assertResult(15, cache.get("pairing15"));
+        }
+    }
+
+    private static void assertResult(int k, GameResult result) {
+        assertNotNull(result, "pairing" + k);
+        assertEquals(k, result.getCount(GameResult.CC));
+        assertEquals(k + 1, result.getRounds());
+    }
+
+    @Test
+    void entriesReadFromTheOldGenerationAreKept() throws IOException {
+        File path = new File(dir, "pairings");
+        try (PairingCache cache = new PairingCache(1, path, 10)) {
+            for (int k = 0; k < 20; k++) cache.put("pairing" + k, result(k));
+            // pairing0 is in the old generation, reading it copies it to the current one
+            assertNotNull(cache.get("pairing0"));
+            for (int k = 20; k < 29; k++) cache.put("pairing" + k, result(k));
+        }
+        try (PairingCache cache = new PairingCache(1, path, 10)) {
+            assertEquals(0, cache.get("pairing0").getCount(GameResult.CC));
+            assertNull(cache.get("pairing1"));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import jade.core.AID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Players and strategies shared by the tests
+ */
+final class TestPlayers {
+
+    private TestPlayers() {
+    }
+
+    static List<MainAgent.PlayerInformation> create(int n) {
+        List<MainAgent.PlayerInformation> players = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            players.add(new MainAgent.PlayerInformation(new AID("player" + i + "@test", AID.ISGUID), i));
+        }
+        return players;
+    }
+
+    /**
+     * Strategy of player i: the agents' strategies and a few fixed tables, random players included
+     */
+    static Supplier<Strategy> strategy(int i) {
+        switch (i % 7) {
+            case 0:
+                return TFTStrategy::new;
+            case 1:
+                return PavlovStrategy::new;
+            case 2:
+                return SpitefulStrategy::new;
+            case 3:
+                return RandomStrategy::new;
+            case 4:
+                return () -> new MemoryStrategy("D", "DDDD");
+            case 5:
+                return () -> new MemoryStrategy("C", "DCDC");
+            default:
+                return () -> new MemoryStrategy("CD", "CDDCDCCDDCCDCDDC");
+        }
+    }
+
+    /**
+     * Engine over n players playing the strategies above
+     */
+    static TournamentEngine engine(int n, int R, double noise, long seed) {
+        TournamentEngine engine = new TournamentEngine(R);
+        List<MainAgent.PlayerInformation> players = create(n);
+        for (int i = 0; i < n; i++) {
+            engine.addPlayer(players.get(i), strategy(i));
+        }
+        engine.setNoise(noise);
+        engine.setSeed(seed);
+        return engine;
+    }
+
+    static void assertSameStats(List<MainAgent.PlayerInformation> expected, List<MainAgent.PlayerInformation> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            MainAgent.PlayerInformation e = expected.get(i), a = actual.get(i);
+            String name = e.aid.getName();
+            assertEquals(name, a.aid.getName());
+            assertEquals(e.gamesPlayed, a.gamesPlayed, name);
+            assertEquals(e.gamesWon, a.gamesWon, name);
+            assertEquals(e.cooperations, a.cooperations, name);
+            assertEquals(e.defections, a.defections, name);
+            assertEquals(e.avgPayoff.getCount(), a.avgPayoff.getCount(), name);
+            assertEquals(e.avgPayoff.getMean(), a.avgPayoff.getMean(), 0, name);
+            assertEquals(e.avgPayoff.getVariance(), a.avgPayoff.getVariance(), 0, name);
+            assertEquals(e.finalPayoff, a.finalPayoff, 0, name);
+        }
+    }
+}
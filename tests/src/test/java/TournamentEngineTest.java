@@ -0,0 +1,162 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TournamentEngineTest {
+
+    private static TournamentEngine play(int players, double noise, int parallelism) {
+        TournamentEngine engine = TestPlayers.engine(players, 200, noise, 42);
+        engine.setParallelism(parallelism);
+        engine.play();
+        return engine;
+    }
+
+    @Test
+    void parallelEqualsSerial() {
+        TestPlayers.assertSameStats(play(23, 0, 1).getPlayers(), play(23, 0, 4).getPlayers());
+    }
+
+    @Test
+    void parallelEqualsSerialWithNoise() {
+        TestPlayers.assertSameStats(play(23, 0.05, 1).getPlayers(), play(23, 0.05, 4).getPlayers());
+    }
+
+    @Test
+    void everyPlayerPlaysEveryOther() {
+        for (MainAgent.PlayerInformation player : play(10, 0, 1).getPlayers()) {
+            assertEquals(9, player.gamesPlayed);
+            assertEquals(player.avgPayoff.getCount(), player.gamesPlayed);
+        }
+    }
+
+    @Test
+    void scheduleHoldsEveryPairingOnce() {
+        for (int n = 1; n <= 12; n++) {
+            Set<Long> pairs = new HashSet<>();
+            TournamentEngine.Schedule schedule = new TournamentEngine.Schedule(n, 7, 0);
+            int games = 0;
+            for (TournamentEngine.Pairing pairing = schedule.next(); pairing != null; pairing = schedule.next()) {
+                assertEquals(games++, pairing.game);
+                assertTrue(0 <= pairing.first && pairing.first < pairing.second && pairing.second < n);
+                assertTrue(pairs.add((long) pairing.first * n + pairing.second), "pairing played twice");
+            }
+            assertEquals(n * (n - 1) / 2, games);
+        }
+    }
+
+    @Test
+    void roundsOfTheScheduleAreDisjoint() {
+        for (int n = 2; n <= 12; n++) {
+            int perRound = n / 2;
+            TournamentEngine.Schedule schedule = new TournamentEngine.Schedule(n, 7, 0);
+            Set<Integer> busy = new HashSet<>();
+            for (TournamentEngine.Pairing pairing = schedule.next(); pairing != null; pairing = schedule.next()) {
+                if (pairing.game % perRound == 0) busy.clear();
+                assertTrue(busy.add(pairing.first), "player " + pairing.first + " twice in a round of " + n);
+                assertTrue(busy.add(pairing.second), "player " + pairing.second + " twice in a round of " + n);
+            }
+        }
+    }
+
+    @Test
+    void scheduleSkipsToTheFirstGame() {
+        TournamentEngine.Schedule full = new TournamentEngine.Schedule(9, 11, 0);
+        for (int k = 0; k < 9 * 8 / 2; k++) {
+            TournamentEngine.Pairing expected = full.next();
+            TournamentEngine.Pairing skipped = new TournamentEngine.Schedule(9, 11, k).next();
+            assertEquals(expected.game, skipped.game);
+            assertEquals(expected.first, skipped.first);
+            assertEquals(expected.second, skipped.second);
+            assertEquals(expected.seed, skipped.seed);
+        }
+        assertNull(new TournamentEngine.Schedule(9, 11, 9 * 8 / 2).next());
+    }
+
+    /**
+     * Hides the state of a strategy, so the engine plays every round
+     */
+    private static final class Stateless implements Strategy {
+
+        private final Strategy strategy;
+
+        Stateless(Strategy strategy) {
+            this.strategy = strategy;
+        }
+
+        @Override
+        public void newGame() {
+            strategy.newGame();
+        }
+
+        @Override
+        public int nextMove() {
+            return strategy.nextMove();
+        }
+
+        @Override
+        public void saveOpponentMove(int myMove, int opponentMove) {
+            strategy.saveOpponentMove(myMove, opponentMove);
+        }
+    }
+
+    private static List<Strategy> deterministicStrategies() {
+        List<Strategy> strategies = new ArrayList<>();
+        strategies.add(new TFTStrategy());
+        strategies.add(new PavlovStrategy());
+        strategies.add(new SpitefulStrategy());
+        SplittableRandom random = new SplittableRandom(3);
+        for (int k = 0; k < 12; k++) {
+            int n = 1 + k % 3;
+            StringBuilder first = new StringBuilder(), table = new StringBuilder();
+            for (int r = 0; r < n; r++) first.append(random.nextBoolean() ? 'C' : 'D');
+            for (int h = 0; h < MemoryStrategy.entries(n); h++) table.append(random.nextBoolean() ? 'C' : 'D');
+            strategies.add(new MemoryStrategy(first.toString(), table.toString()));
+        }
+        return strategies;
+    }
+
+    @Test
+    void cycleExtrapolationEqualsFullPlay() {
+        List<Strategy> strategies = deterministicStrategies();
+        for (int numRounds : new int[] {1, 3, 17, 1000, 1500, 5003}) {
+            for (Strategy strategy1 : strategies) {
+                for (Strategy strategy2 : strategies) {
+                    byte[] extrapolated = new byte[numRounds], played = new byte[numRounds];
+                    GameResult fast = TournamentEngine.playGame(strategy1, strategy2, numRounds, 0, null, extrapolated);
+                    GameResult slow = TournamentEngine.playGame(new Stateless(strategy1), new Stateless(strategy2), numRounds, 0, null, played);
+                    String game = strategy1.identity() + " against " + strategy2.identity() + " over " + numRounds;
+                    assertEquals(slow.getRounds(), fast.getRounds(), game);
+                    for (int outcome = 0; outcome < 4; outcome++) {
+                        assertEquals(slow.getCount(outcome), fast.getCount(outcome), game);
+                    }
+                    assertArrayEquals(played, extrapolated, game);
+                    assertEquals(fast.getRounds(), roundsOf(TournamentEngine.playGame(strategy1, strategy2, numRounds)), game);
+                }
+            }
+        }
+    }
+
+    private static int roundsOf(GameResult result) {
+        int rounds = 0;
+        for (int outcome = 0; outcome < 4; outcome++) rounds += result.getCount(outcome);
+        return rounds;
+    }
+
+    @Test
+    void pairingDependsOnlyOnItsSeed() {
+        GameResult first = TournamentEngine.playPairing(new RandomStrategy(), new PavlovStrategy(), 500, 0.1, 1234);
+        GameResult second = TournamentEngine.playPairing(new RandomStrategy(), new PavlovStrategy(), 500, 0.1, 1234);
+        for (int outcome = 0; outcome < 4; outcome++) {
+            assertEquals(first.getCount(outcome), second.getCount(outcome));
+        }
+    }
+}